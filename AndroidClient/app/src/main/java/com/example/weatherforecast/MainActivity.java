@@ -4,6 +4,10 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.Settings;
@@ -42,6 +46,24 @@ public class MainActivity extends AppCompatActivity {
     private BottomNavigationView bottomNavigationView;
     private ErrorHandler errorHandler;
 
+    // Восстановление сети будит сразу много устройств; обновление откладывается случайно
+    private volatile boolean networkLost;
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            // Первый onAvailable приходит сразу при регистрации, он не восстановление
+            if (networkLost) {
+                networkLost = false;
+                weatherViewModel.onNetworkAvailable();
+            }
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            networkLost = true;
+        }
+    };
+
     // Для запроса разрешений
     private final ActivityResultLauncher<String[]> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(),
@@ -141,8 +163,7 @@ public class MainActivity extends AppCompatActivity {
         locationViewModel.getCurrentLocation().observe(this, location -> {
             if (location != null) {
                 // Загружаем погоду по полученным координатам
-                weatherViewModel.loadCurrentWeather(location.getLatitude(), location.getLongitude());
-                weatherViewModel.loadForecast(location.getLatitude(), location.getLongitude());
+                weatherViewModel.loadWeather(location.getLatitude(), location.getLongitude());
 
                 // Логирование успешного получения локации
                 Toast.makeText(MainActivity.this,
@@ -293,8 +314,7 @@ public class MainActivity extends AppCompatActivity {
         // Пробуем использовать последнюю известную локацию
         if (locationViewModel.getCurrentLocation().getValue() != null) {
             Location location = locationViewModel.getCurrentLocation().getValue();
-            weatherViewModel.loadCurrentWeather(location.getLatitude(), location.getLongitude());
-            weatherViewModel.loadForecast(location.getLatitude(), location.getLongitude());
+            weatherViewModel.loadWeather(location.getLatitude(), location.getLongitude());
         } else {
             // Если локации нет, используем дефолтную или запрашиваем снова
             useDefaultLocation();
@@ -375,8 +395,7 @@ public class MainActivity extends AppCompatActivity {
         double defaultLat = 55.7558;
         double defaultLon = 37.6173;
 
-        weatherViewModel.loadCurrentWeather(defaultLat, defaultLon);
-        weatherViewModel.loadForecast(defaultLat, defaultLon);
+        weatherViewModel.loadWeather(defaultLat, defaultLon);
 
         Toast.makeText(this,
                 "Using default location (Moscow)",
@@ -479,6 +498,26 @@ public class MainActivity extends AppCompatActivity {
             );
             handleError(networkError);
         }
+        
+        weatherViewModel.startAutoRefresh();
+        weatherViewModel.startLiveUpdates();
+        ConnectivityManager connectivityManager = getSystemService(ConnectivityManager.class);
+        if (connectivityManager != null) {
+            connectivityManager.registerNetworkCallback(new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build(), networkCallback);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        weatherViewModel.stopAutoRefresh();
+        weatherViewModel.stopLiveUpdates();
+        ConnectivityManager connectivityManager = getSystemService(ConnectivityManager.class);
+        if (connectivityManager != null) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+        }
     }
 
     @Override
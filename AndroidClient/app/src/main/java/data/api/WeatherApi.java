@@ -1,22 +1,73 @@
 package data.api;
 
 import data.model.ApiResponse;
+import data.model.BatchWeather;
 import data.model.CurrentWeather;
 import data.model.ForecastData;
+import data.model.ForecastDelta;
+import data.model.LocationCatalog;
+
+import com.example.weatherforecast.data.network.RequestPriority;
+
+import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Query;
 public interface WeatherApi {
+    @Headers(RequestPriority.INTERACTIVE_HEADER)
     @GET("weather/current")
     Call<ApiResponse<CurrentWeather>> getCurrentWeather(
             @Query("lat") double lat,
             @Query("lon") double lon
     );
 
+    /**
+     * Текущая погода только с указанными полями, например "temperature,condition".
+     * Остальные поля в ответе отсутствуют
+     */
+    @Headers(RequestPriority.PREFETCH_HEADER)
+    @GET("weather/current")
+    Call<ApiResponse<CurrentWeather>> getCurrentWeather(
+            @Query("lat") double lat,
+            @Query("lon") double lon,
+            @Query("fields") String fields
+    );
+
+    @Headers(RequestPriority.INTERACTIVE_HEADER)
     @GET("weather/forecast")
     Call<ApiResponse<ForecastData>> getForecast(
             @Query("lat") double lat,
             @Query("lon") double lon
     );
+
+    /**
+     * Только изменения прогноза относительно версии since из прошлого ответа
+     */
+    @Headers(RequestPriority.PREFETCH_HEADER)
+    @GET("weather/forecast/delta")
+    Call<ApiResponse<ForecastDelta>> getForecastDelta(
+            @Query("lat") double lat,
+            @Query("lon") double lon,
+            @Query("since") String since
+    );
+
+    /**
+     * Погода сразу для нескольких точек за один запрос.
+     * locations - строки вида "lat,lon", include - "current", "forecast" или "current,forecast"
+     */
+    @Headers(RequestPriority.PREFETCH_HEADER)
+    @GET("weather/batch")
+    Call<ApiResponse<BatchWeather>> getWeatherBatch(
+            @Query("loc") List<String> locations,
+            @Query("include") String include
+    );
+
+    /**
+     * Каталог точек, для которых у сервера есть данные
+     */
+    @Headers(RequestPriority.PREFETCH_HEADER)
+    @GET("locations")
+    Call<ApiResponse<LocationCatalog>> getLocationCatalog();
 }
@@ -0,0 +1,207 @@
+package com.example.weatherforecast.data.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Хэш-таблица с ключами-примитивами long и открытой адресацией.
+ *
+ * Чтение не берёт блокировок и ничего не выделяет: таблица публикуется через
+ * volatile-поле, а ячейки читаются через AtomicReferenceArray. Все изменения
+ * выполняются под блокировкой объекта.
+ */
+public class ConcurrentLongMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    // Метка удалённой ячейки: цепочка поиска через неё не обрывается
+    private static final Node<Object> TOMBSTONE = new Node<>(0L, null);
+
+    private volatile AtomicReferenceArray<Node<V>> table;
+    private int size;
+    private int used; // занятые ячейки вместе с метками удаления
+
+    private static final class Node<V> {
+        final long key;
+        final V value;
+
+        Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public interface Visitor<V> {
+        void visit(long key, @NonNull V value);
+    }
+
+    public ConcurrentLongMap(int expectedSize) {
+        this.table = new AtomicReferenceArray<>(capacityFor(expectedSize));
+    }
+
+    @Nullable
+    public V get(long key) {
+        AtomicReferenceArray<Node<V>> slots = table;
+        int mask = slots.length() - 1;
+        int index = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Node<V> node = slots.get(index);
+            if (node == null) {
+                return null;
+            }
+            if (node != TOMBSTONE && node.key == key) {
+                return node.value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Сохраняет значение и возвращает предыдущее
+     */
+    @Nullable
+    public synchronized V put(long key, @NonNull V value) {
+        if ((used + 1) * 4 > table.length() * 3) {
+            rehash();
+        }
+
+        AtomicReferenceArray<Node<V>> slots = table;
+        int mask = slots.length() - 1;
+        int index = hash(key) & mask;
+        int firstFree = -1;
+        while (true) {
+            Node<V> node = slots.get(index);
+            if (node == null) {
+                break;
+            }
+            if (node == TOMBSTONE) {
+                if (firstFree < 0) firstFree = index;
+            } else if (node.key == key) {
+                slots.set(index, new Node<>(key, value));
+                return node.value;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (firstFree >= 0) {
+            index = firstFree;
+        } else {
+            used++;
+        }
+        slots.set(index, new Node<>(key, value));
+        size++;
+        return null;
+    }
+
+    @Nullable
+    public synchronized V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = table.get(index).value;
+        clearSlot(index);
+        return previous;
+    }
+
+    /**
+     * Удаляет запись, только если она всё ещё указывает на expected
+     */
+    public synchronized boolean remove(long key, @NonNull V expected) {
+        int index = indexOf(key);
+        if (index < 0 || table.get(index).value != expected) {
+            return false;
+        }
+        clearSlot(index);
+        return true;
+    }
+
+    public synchronized void clear() {
+        table = new AtomicReferenceArray<>(MIN_CAPACITY);
+        size = 0;
+        used = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Обходит все записи. Вызывается на пути записи, поэтому берёт блокировку
+     */
+    public synchronized void forEach(@NonNull Visitor<V> visitor) {
+        AtomicReferenceArray<Node<V>> slots = table;
+        for (int i = 0; i < slots.length(); i++) {
+            Node<V> node = slots.get(i);
+            if (node != null && node != TOMBSTONE) {
+                visitor.visit(node.key, node.value);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        AtomicReferenceArray<Node<V>> slots = table;
+        int mask = slots.length() - 1;
+        int index = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Node<V> node = slots.get(index);
+            if (node == null) {
+                return -1;
+            }
+            if (node != TOMBSTONE && node.key == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void clearSlot(int index) {
+        table.set(index, (Node<V>) TOMBSTONE);
+        size--;
+    }
+
+    // Новая таблица строится целиком и публикуется одной записью, так что читатели
+    // видят либо старую, либо новую таблицу
+    private void rehash() {
+        AtomicReferenceArray<Node<V>> old = table;
+        int capacity = Math.max(capacityFor(size + 1), old.length());
+        if (size * 2 >= capacity) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Node<V>> fresh = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length(); i++) {
+            Node<V> node = old.get(i);
+            if (node == null || node == TOMBSTONE) continue;
+            int index = hash(node.key) & mask;
+            while (fresh.get(index) != null) {
+                index = (index + 1) & mask;
+            }
+            fresh.set(index, node);
+        }
+        table = fresh;
+        used = size;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        // Финализатор MurmurHash3: соседние ячейки сетки не должны попадать в соседние слоты
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
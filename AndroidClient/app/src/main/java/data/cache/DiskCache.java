@@ -0,0 +1,224 @@
+package com.example.weatherforecast.data.cache;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Дисковый (второй) уровень кэша погоды.
+ *
+ * Каждая запись хранится в отдельном файле: заголовок с меткой времени и CRC32,
+ * затем JSON модели. Запись выполняется отложенно в фоновом потоке, повторные
+ * записи одного ключа до сброса на диск схлопываются в одну.
+ * Повреждённые файлы удаляются при чтении.
+ */
+public class DiskCache {
+    private static final String TAG = "DiskCache";
+    private static final int MAGIC = 0x57464331; // "WFC1"
+    // magic, время записи, CRC32 и длина данных
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 4;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final Gson gson;
+    private final ExecutorService writeExecutor;
+    private final Map<String, Object> pendingWrites = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+
+    public DiskCache(@NonNull File directory, @NonNull Gson gson) {
+        this.directory = directory;
+        this.gson = gson;
+        this.writeExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Значение записи вместе со временем её сохранения
+     */
+    public static final class Entry<T> {
+        private final T value;
+        private final long storedAt;
+
+        Entry(@NonNull T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+
+        @NonNull
+        public T getValue() { return value; }
+        public long getStoredAt() { return storedAt; }
+    }
+
+    /**
+     * Читает запись, если она существует, цела и не старше maxAgeMillis
+     */
+    @Nullable
+    @WorkerThread
+    public <T> T read(@NonNull String namespace, @NonNull String key,
+                      @NonNull Class<T> type, long maxAgeMillis) {
+        Entry<T> entry = readEntry(namespace, key, type, maxAgeMillis);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * То же, что read, но со временем сохранения записи
+     */
+    @Nullable
+    @WorkerThread
+    public <T> Entry<T> readEntry(@NonNull String namespace, @NonNull String key,
+                                  @NonNull Class<T> type, long maxAgeMillis) {
+        File file = fileFor(namespace, key);
+        if (!file.exists()) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Bad magic");
+            }
+            long storedAt = in.readLong();
+            long checksum = in.readLong();
+            // Длину из повреждённого файла нельзя отдавать в new byte[]: до 2 ГБ и OutOfMemoryError
+            int length = in.readInt();
+            if (length < 0 || length > file.length() - HEADER_BYTES) {
+                throw new IOException("Bad payload length " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            if (crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch");
+            }
+
+            if (System.currentTimeMillis() - storedAt > maxAgeMillis) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            T value = gson.fromJson(new String(payload, StandardCharsets.UTF_8), type);
+            if (value == null) {
+                throw new IOException("Empty payload");
+            }
+            hits.incrementAndGet();
+            return new Entry<>(value, storedAt);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Dropping corrupt cache entry " + file.getName(), e);
+            corrupted.incrementAndGet();
+            misses.incrementAndGet();
+            // Не удаляем файл, если его уже перезаписывает фоновый поток
+            if (!pendingWrites.containsKey(file.getName()) && !file.delete()) {
+                Log.w(TAG, "Failed to delete " + file.getName());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Ставит запись в очередь на сохранение (write-behind)
+     */
+    public void writeAsync(@NonNull String namespace, @NonNull String key, @NonNull Object value) {
+        File file = fileFor(namespace, key);
+        String fileName = file.getName();
+        // Если запись по этому ключу уже ждёт в очереди, просто заменяем значение
+        if (pendingWrites.put(fileName, value) == null) {
+            writeExecutor.execute(() -> {
+                Object latest = pendingWrites.remove(fileName);
+                if (latest != null) {
+                    write(file, latest);
+                }
+            });
+        }
+    }
+
+    public void remove(@NonNull String namespace, @NonNull String key) {
+        File file = fileFor(namespace, key);
+        writeExecutor.execute(() -> {
+            pendingWrites.remove(file.getName());
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Failed to delete " + file.getName());
+            }
+        });
+    }
+
+    public void clear() {
+        writeExecutor.execute(() -> {
+            pendingWrites.clear();
+            File[] files = directory.listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                if (!file.delete()) {
+                    Log.w(TAG, "Failed to delete " + file.getName());
+                }
+            }
+        });
+    }
+
+    @WorkerThread
+    private void write(@NonNull File file, @NonNull Object value) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create cache directory " + directory);
+            return;
+        }
+
+        byte[] payload = gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        // Пишем во временный файл и переименовываем, чтобы читатель не увидел половину записи
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(crc.getValue());
+            out.writeInt(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write cache entry " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Failed to commit cache entry " + file.getName());
+            temp.delete();
+        }
+    }
+
+    @NonNull
+    private File fileFor(@NonNull String namespace, @NonNull String key) {
+        // Ключи вида "55.7558,37.6173" превращаем в безопасное имя файла
+        return new File(directory, namespace + "_" + key.replaceAll("[^A-Za-z0-9.\\-]", "_"));
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getCorrupted() { return corrupted.get(); }
+}
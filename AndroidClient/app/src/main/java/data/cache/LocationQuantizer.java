@@ -0,0 +1,47 @@
+package com.example.weatherforecast.data.cache;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Приводит координаты к ячейке географической сетки и упаковывает её в long.
+ *
+ * Соседние GPS-фиксы, отличающиеся на несколько метров, попадают в одну ячейку
+ * и поэтому используют одну запись кэша. Размер ячейки задаётся в градусах.
+ */
+public class LocationQuantizer {
+    private final double cellDegrees;
+    private final double inverseCell;
+
+    public LocationQuantizer(double cellDegrees) {
+        if (!(cellDegrees > 0) || cellDegrees > 1) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 1]");
+        }
+        this.cellDegrees = cellDegrees;
+        this.inverseCell = 1.0 / cellDegrees;
+    }
+
+    /**
+     * Ключ ячейки: старшие 32 бита - номер строки по широте, младшие - по долготе
+     */
+    public long key(double lat, double lon) {
+        int row = (int) Math.floor((clamp(lat, -90, 90) + 90) * inverseCell);
+        int column = (int) Math.floor((clamp(lon, -180, 180) + 180) * inverseCell);
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Текстовое представление ключа для имён файлов и логов
+     */
+    @NonNull
+    public static String toString(long key) {
+        return Long.toHexString(key);
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
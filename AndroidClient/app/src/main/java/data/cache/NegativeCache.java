@@ -0,0 +1,119 @@
+package com.example.weatherforecast.data.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Кэш отказов сервера (HTTP 404/400) для точных координат запроса.
+ *
+ * Точка вне покрытия сервера остаётся вне его и при следующем запросе, поэтому отказ
+ * запоминается и повторные запросы отклоняются без обращения к сети. TTL короче, чем у
+ * данных: покрытие сервера может расшириться. Отказ относится только к тем координатам,
+ * которые ушли на сервер: соседняя точка той же ячейки сетки может поддерживаться.
+ *
+ * Необязательный фильтр Блума отвечает "точно нет" для обычных, поддерживаемых точек,
+ * не заглядывая в таблицу. Удалять из фильтра нельзя, поэтому фильтров два: каждые TTL
+ * старший очищается и становится младшим. Запись живёт не дольше TTL, значит, она всегда
+ * есть хотя бы в одном из них.
+ */
+public class NegativeCache {
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Отказ вместе с координатами: разные точки могут дать один хэш
+     */
+    private static final class Rejection {
+        final double lat;
+        final double lon;
+        final int httpCode;
+
+        Rejection(double lat, double lon, int httpCode) {
+            this.lat = lat;
+            this.lon = lon;
+            this.httpCode = httpCode;
+        }
+
+        boolean matches(double lat, double lon) {
+            return this.lat == lat && this.lon == lon;
+        }
+    }
+
+    private final WeatherCache<Rejection> entries;
+    private final long ttlMillis;
+
+    @Nullable
+    private volatile BloomFilter recentFilter;
+    @Nullable
+    private volatile BloomFilter previousFilter;
+    private long rotatedAt = System.currentTimeMillis();
+
+    public NegativeCache(int maxEntries, long ttlMillis, boolean useBloomFilter) {
+        this.entries = new WeatherCache<>(maxEntries, ttlMillis);
+        this.ttlMillis = ttlMillis;
+        if (useBloomFilter) {
+            recentFilter = new BloomFilter(maxEntries, BLOOM_FALSE_POSITIVE_RATE);
+            previousFilter = new BloomFilter(maxEntries, BLOOM_FALSE_POSITIVE_RATE);
+        }
+    }
+
+    /**
+     * HTTP-код отказа для координат или 0, если сервер их недавно не отвергал
+     */
+    public int get(double lat, double lon) {
+        long key = key(lat, lon);
+        BloomFilter recent = recentFilter;
+        BloomFilter previous = previousFilter;
+        if (recent != null && previous != null
+                && !recent.mightContain(key) && !previous.mightContain(key)) {
+            return 0;
+        }
+        Rejection rejection = entries.get(key);
+        return rejection != null && rejection.matches(lat, lon) ? rejection.httpCode : 0;
+    }
+
+    public synchronized void put(double lat, double lon, int httpCode) {
+        long key = key(lat, lon);
+        BloomFilter recent = recentFilter;
+        if (recent != null) {
+            long now = System.currentTimeMillis();
+            if (now - rotatedAt >= ttlMillis) {
+                // Чтение во время очистки может пропустить отказ - это лишь лишний запрос
+                BloomFilter oldest = previousFilter;
+                oldest.clear();
+                previousFilter = recent;
+                recentFilter = oldest;
+                recent = oldest;
+                rotatedAt = now;
+            }
+            recent.add(key);
+        }
+        entries.put(key, new Rejection(lat, lon, httpCode));
+    }
+
+    public void remove(double lat, double lon) {
+        entries.remove(key(lat, lon));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        if (recentFilter != null) {
+            recentFilter.clear();
+            previousFilter.clear();
+        }
+    }
+
+    @NonNull
+    public WeatherCache.Stats getStats() {
+        return entries.getStats();
+    }
+
+    // Хэш точных битов координат; +0.0 и -0.0 считаются одной точкой
+    static long key(double lat, double lon) {
+        long latBits = Double.doubleToLongBits(lat + 0.0);
+        long lonBits = Double.doubleToLongBits(lon + 0.0);
+        long h = latBits * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(lonBits, 32);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.weatherforecast.data.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный по размеру кэш с вытеснением LRU и временем жизни записей (TTL).
+ *
+ * После окончания TTL запись ещё maxStale миллисекунд доступна через
+ * {@link #getStale(long)} для режима stale-while-revalidate, затем удаляется.
+ *
+ * Ключи - примитивы long (см. {@link LocationQuantizer}), поэтому попадание в кэш
+ * ничего не выделяет. Чтение не берёт блокировок: записи хранятся в
+ * {@link ConcurrentLongMap}, а порядок обращений отслеживается монотонным
+ * счётчиком в самой записи. Запись и вытеснение сериализуются через одну блокировку.
+ */
+public class WeatherCache<V> {
+    private final ConcurrentLongMap<Entry<V>> entries;
+    private final Object writeLock = new Object();
+    private final AtomicLong accessClock = new AtomicLong();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAt;
+        volatile long lastAccess;
+
+        Entry(V value, long storedAt, long lastAccess) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    public WeatherCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, 0);
+    }
+
+    public WeatherCache(int maxEntries, long ttlMillis, long maxStaleMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+        if (maxStaleMillis < 0) {
+            throw new IllegalArgumentException("maxStaleMillis must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.maxStaleMillis = maxStaleMillis;
+        this.entries = new ConcurrentLongMap<>(maxEntries + 1);
+    }
+
+    /**
+     * Возвращает значение, если оно есть и не устарело, иначе null
+     */
+    @Nullable
+    public V get(long key) {
+        Entry<V> entry = liveEntry(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        entry.lastAccess = accessClock.incrementAndGet();
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Возвращает устаревшее, но ещё допустимое к показу значение (TTL < возраст <= TTL + maxStale)
+     */
+    @Nullable
+    public V getStale(long key) {
+        Entry<V> entry = liveEntry(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt <= ttlMillis) {
+            return null;
+        }
+
+        entry.lastAccess = accessClock.incrementAndGet();
+        staleHits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Любое ещё допустимое к показу значение, свежее или устаревшее, без учёта в статистике
+     */
+    @Nullable
+    public V peek(long key) {
+        Entry<V> entry = liveEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Возраст, до которого данные считаются свежими
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Максимальный возраст данных, которые ещё можно показать пользователю
+     */
+    public long getMaxAgeMillis() {
+        return ttlMillis + maxStaleMillis;
+    }
+
+    @Nullable
+    private Entry<V> liveEntry(long key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.storedAt > getMaxAgeMillis()) {
+            // Удаляем только ту запись, которую видели, чтобы не потерять свежую
+            if (entries.remove(key, entry)) {
+                expirations.incrementAndGet();
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Сохраняет значение и при переполнении вытесняет давно не используемые записи
+     */
+    public void put(long key, @NonNull V value) {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Сохраняет значение, полученное в момент storedAt (например, с диска), не омолаживая его
+     */
+    public void put(long key, @NonNull V value, long storedAt) {
+        Entry<V> entry = new Entry<>(value, storedAt, accessClock.incrementAndGet());
+        synchronized (writeLock) {
+            entries.put(key, entry);
+            while (entries.size() > maxEntries) {
+                evictEldest();
+            }
+        }
+    }
+
+    /**
+     * Заменяет значение существующей записи, не продлевая её срок жизни.
+     * Возвращает false, если записи нет
+     */
+    public boolean replace(long key, @NonNull V value) {
+        synchronized (writeLock) {
+            Entry<V> existing = entries.get(key);
+            if (existing == null) {
+                return false;
+            }
+            entries.put(key, new Entry<>(value, existing.storedAt, accessClock.incrementAndGet()));
+            return true;
+        }
+    }
+
+    public void remove(long key) {
+        synchronized (writeLock) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Вызывается под writeLock. Размер кэша небольшой, поэтому линейный поиск дешевле,
+    // чем поддержка отдельного списка порядка обращений
+    private void evictEldest() {
+        long[] eldest = {0L, Long.MAX_VALUE}; // ключ и время последнего обращения
+        entries.forEach((key, entry) -> {
+            if (entry.lastAccess < eldest[1]) {
+                eldest[0] = key;
+                eldest[1] = entry.lastAccess;
+            }
+        });
+        if (eldest[1] != Long.MAX_VALUE && entries.remove(eldest[0]) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    @NonNull
+    public Stats getStats() {
+        return new Stats(hits.get(), staleHits.get(), misses.get(), evictions.get(),
+                expirations.get(), entries.size());
+    }
+
+    /**
+     * Снимок счётчиков кэша
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long staleHits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final int size;
+
+        Stats(long hits, long staleHits, long misses, long evictions, long expirations, int size) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.size = size;
+        }
+
+        public long getHits() { return hits; }
+        public long getStaleHits() { return staleHits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+        public int getSize() { return size; }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hits +
+                    ", staleHits=" + staleHits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", expirations=" + expirations +
+                    ", size=" + size +
+                    '}';
+        }
+    }
+}
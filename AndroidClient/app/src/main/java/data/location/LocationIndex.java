@@ -0,0 +1,197 @@
+package com.example.weatherforecast.data.location;
+
+/**
+ * Поиск ближайшей поддерживаемой сервером точки (k-d дерево).
+ *
+ * Точки хранятся как единичные векторы на сфере: евклидово расстояние между ними (хорда)
+ * монотонно растёт с расстоянием по поверхности Земли, поэтому нет особых случаев у полюсов
+ * и на 180-м меридиане. Дерево неявное: узел - середина диапазона массива, слева точки с
+ * меньшей координатой по оси уровня, справа с большей. Поиск ничего не выделяет и не берёт
+ * блокировок; индекс неизменяем, после перезагрузки каталога строится новый.
+ */
+public final class LocationIndex {
+    public static final LocationIndex EMPTY = new LocationIndex(new double[0], new double[0]);
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    // Короткие диапазоны быстрее перебрать, чем спускаться дальше
+    private static final int LEAF_SIZE = 8;
+
+    // Все массивы в порядке дерева
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final double[] lats;
+    private final double[] lons;
+    private final int[] catalogIndexes;
+
+    /**
+     * Строит индекс по координатам каталога; lats и lons не изменяются
+     */
+    public LocationIndex(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("lats and lons must have the same length");
+        }
+        int size = lats.length;
+        this.lats = lats.clone();
+        this.lons = lons.clone();
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+        this.catalogIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            double phi = Math.toRadians(lats[i]);
+            double lambda = Math.toRadians(lons[i]);
+            xs[i] = Math.cos(phi) * Math.cos(lambda);
+            ys[i] = Math.cos(phi) * Math.sin(lambda);
+            zs[i] = Math.sin(phi);
+            catalogIndexes[i] = i;
+        }
+        build(0, size, 0);
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Позиция ближайшей точки не дальше maxDistanceKm или -1, если такой нет
+     */
+    public int nearest(double lat, double lon, double maxDistanceKm) {
+        if (xs.length == 0) return -1;
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double qx = Math.cos(phi) * Math.cos(lambda);
+        double qy = Math.cos(phi) * Math.sin(lambda);
+        double qz = Math.sin(phi);
+        double chord = 2 * Math.sin(Math.min(maxDistanceKm / EARTH_RADIUS_KM, Math.PI) / 2);
+        return search(0, xs.length, 0, qx, qy, qz, -1, chord * chord);
+    }
+
+    /**
+     * Широта точки position из {@link #nearest}; fallback, если точка не найдена
+     */
+    public double latitude(int position, double fallback) {
+        return position >= 0 ? lats[position] : fallback;
+    }
+
+    public double longitude(int position, double fallback) {
+        return position >= 0 ? lons[position] : fallback;
+    }
+
+    /**
+     * Номер точки в исходном каталоге
+     */
+    public int catalogIndex(int position) {
+        return catalogIndexes[position];
+    }
+
+    private int search(int lo, int hi, int axis, double qx, double qy, double qz,
+                       int best, double bestDistance) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                double distance = distance(i, qx, qy, qz);
+                if (distance <= bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        double distance = distance(mid, qx, qy, qz);
+        if (distance <= bestDistance) {
+            best = mid;
+            bestDistance = distance;
+        }
+        double diff = axis == 0 ? xs[mid] - qx : axis == 1 ? ys[mid] - qy : zs[mid] - qz;
+        int next = axis == 2 ? 0 : axis + 1;
+
+        // Сначала сторона запроса, затем другая - если плоскость разбиения ближе лучшей точки
+        int found = diff > 0
+                ? search(lo, mid, next, qx, qy, qz, best, bestDistance)
+                : search(mid + 1, hi, next, qx, qy, qz, best, bestDistance);
+        if (found != best) {
+            best = found;
+            bestDistance = distance(found, qx, qy, qz);
+        }
+        if (diff * diff <= bestDistance) {
+            best = diff > 0
+                    ? search(mid + 1, hi, next, qx, qy, qz, best, bestDistance)
+                    : search(lo, mid, next, qx, qy, qz, best, bestDistance);
+        }
+        return best;
+    }
+
+    private double distance(int i, double qx, double qy, double qz) {
+        double dx = xs[i] - qx;
+        double dy = ys[i] - qy;
+        double dz = zs[i] - qz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void build(int lo, int hi, int axis) {
+        if (hi - lo <= LEAF_SIZE) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        int next = axis == 2 ? 0 : axis + 1;
+        build(lo, mid, next);
+        build(mid + 1, hi, next);
+    }
+
+    // Quickselect: после него слева от k нет больших значений по оси, справа - меньших
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            double pivot = coordinate(medianOfThree(left, (left + right) >>> 1, right, axis), axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(i, axis) < pivot) i++;
+                while (coordinate(j, axis) > pivot) j--;
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int medianOfThree(int a, int b, int c, int axis) {
+        double va = coordinate(a, axis);
+        double vb = coordinate(b, axis);
+        double vc = coordinate(c, axis);
+        if (va < vb) {
+            return vb < vc ? b : (va < vc ? c : a);
+        }
+        return va < vc ? a : (vb < vc ? c : b);
+    }
+
+    private double coordinate(int i, int axis) {
+        return axis == 0 ? xs[i] : axis == 1 ? ys[i] : zs[i];
+    }
+
+    private void swap(int i, int j) {
+        swap(xs, i, j);
+        swap(ys, i, j);
+        swap(zs, i, j);
+        swap(lats, i, j);
+        swap(lons, i, j);
+        int index = catalogIndexes[i];
+        catalogIndexes[i] = catalogIndexes[j];
+        catalogIndexes[j] = index;
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
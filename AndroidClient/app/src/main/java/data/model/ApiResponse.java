@@ -14,6 +14,15 @@ public class ApiResponse<T> {
     @SerializedName("message")
     private String message;
 
+    public ApiResponse() {}
+
+    public ApiResponse(T data, String status, String timestamp, String message) {
+        this.data = data;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.message = message;
+    }
+
     public T getData() { return data; }
     public String getStatus() { return status; }
     public String getTimestamp() { return timestamp; }
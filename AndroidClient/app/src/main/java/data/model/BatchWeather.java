@@ -0,0 +1,45 @@
+package data.model;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+public class BatchWeather {
+    @SerializedName("results")
+    private List<Item> results;
+
+    public static class Item {
+        @SerializedName("lat")
+        private double lat;
+
+        @SerializedName("lon")
+        private double lon;
+
+        @SerializedName("status")
+        private String status;
+
+        @SerializedName("message")
+        private String message;
+
+        @SerializedName("current")
+        private CurrentWeather current;
+
+        @SerializedName("forecast")
+        private ForecastData forecast;
+
+        public double getLat() { return lat; }
+        public double getLon() { return lon; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+        public CurrentWeather getCurrent() { return current; }
+        public ForecastData getForecast() { return forecast; }
+
+        public boolean isSuccess() { return "success".equals(status); }
+    }
+
+    public BatchWeather() {}
+
+    public BatchWeather(List<Item> results) {
+        this.results = results;
+    }
+
+    public List<Item> getResults() { return results; }
+}
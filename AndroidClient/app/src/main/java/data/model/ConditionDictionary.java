@@ -0,0 +1,60 @@
+package data.model;
+
+import java.util.HashMap;
+import java.util.Map;
+/**
+ * Общий словарь погодных условий ("Snow", "Cloudy", ...) для колоночного ForecastData.
+ * Каждое условие хранится один раз, в прогнозах остаются только однобайтовые коды.
+ *
+ * Словарь почти не меняется (условий около десятка), а читается на каждый день прогноза,
+ * поэтому он копируется при записи: чтение идёт по volatile-снимку без блокировки,
+ * блокировку берёт только добавление нового условия.
+ */
+public final class ConditionDictionary {
+    // 0 - отсутствующее условие, OVERFLOW - словарь переполнен, строка хранится отдельно
+    public static final int NONE = 0;
+    public static final int OVERFLOW = 255;
+
+    // Снимки не изменяются после публикации; новое условие публикует новые копии
+    private static volatile String[] names = new String[OVERFLOW];
+    private static volatile Map<String, Integer> codes = new HashMap<>();
+    private static int nextCode = 1;
+
+    private ConditionDictionary() {}
+
+    /**
+     * Возвращает код условия, добавляя его в словарь при первой встрече
+     */
+    public static int encode(String condition) {
+        if (condition == null) return NONE;
+
+        Integer code = codes.get(condition);
+        if (code != null) return code;
+        return add(condition);
+    }
+
+    private static synchronized int add(String condition) {
+        // Пока ждали блокировку, условие мог добавить другой поток
+        Integer code = codes.get(condition);
+        if (code != null) return code;
+        if (nextCode == OVERFLOW) return OVERFLOW;
+
+        int newCode = nextCode++;
+        String[] newNames = names.clone();
+        newNames[newCode] = condition;
+        Map<String, Integer> newCodes = new HashMap<>(codes);
+        newCodes.put(condition, newCode);
+        // Имя публикуется раньше кода: кто получил код, найдёт и имя
+        names = newNames;
+        codes = newCodes;
+        return newCode;
+    }
+
+    /**
+     * Название условия по коду. Для NONE и OVERFLOW возвращает null
+     */
+    public static String decode(int code) {
+        if (code <= NONE || code >= OVERFLOW) return null;
+        return names[code];
+    }
+}
@@ -1,7 +1,29 @@
 package data.model;
 
 import com.google.gson.annotations.SerializedName;
+import java.util.Set;
 public class CurrentWeather {
+    /**
+     * Поля, которые можно запросить проекцией (параметр fields=)
+     */
+    public enum Field {
+        CITY("city"),
+        TEMPERATURE("temperature"),
+        CONDITION("condition"),
+        HUMIDITY("humidity"),
+        WIND_SPEED("wind_speed"),
+        WIND_DIRECTION("wind_direction"),
+        TIMESTAMP("timestamp");
+
+        private final String serializedName;
+
+        Field(String serializedName) {
+            this.serializedName = serializedName;
+        }
+
+        public String getSerializedName() { return serializedName; }
+    }
+
     @SerializedName("city")
     private String city;
 
@@ -23,6 +45,19 @@ public class CurrentWeather {
     @SerializedName("timestamp")
     private String timestamp;
 
+    public CurrentWeather() {}
+
+    public CurrentWeather(String city, double temperature, String condition, int humidity,
+                          double windSpeed, String windDirection, String timestamp) {
+        this.city = city;
+        this.temperature = temperature;
+        this.condition = condition;
+        this.humidity = humidity;
+        this.windSpeed = windSpeed;
+        this.windDirection = windDirection;
+        this.timestamp = timestamp;
+    }
+
     public String getCity() { return city; }
     public double getTemperature() { return temperature; }
     public String getCondition() { return condition; }
@@ -31,4 +66,18 @@ public class CurrentWeather {
     public String getWindDirection() { return windDirection; }
     public String getTimestamp() { return timestamp; }
 
+    /**
+     * Новая запись: поля из fields берутся из этой (проекции), остальные - из base
+     */
+    public CurrentWeather mergeInto(CurrentWeather base, Set<Field> fields) {
+        return new CurrentWeather(
+                fields.contains(Field.CITY) ? city : base.city,
+                fields.contains(Field.TEMPERATURE) ? temperature : base.temperature,
+                fields.contains(Field.CONDITION) ? condition : base.condition,
+                fields.contains(Field.HUMIDITY) ? humidity : base.humidity,
+                fields.contains(Field.WIND_SPEED) ? windSpeed : base.windSpeed,
+                fields.contains(Field.WIND_DIRECTION) ? windDirection : base.windDirection,
+                fields.contains(Field.TIMESTAMP) ? timestamp : base.timestamp);
+    }
+
 }
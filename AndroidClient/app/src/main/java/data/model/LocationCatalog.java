@@ -0,0 +1,25 @@
+package data.model;
+
+/**
+ * Каталог точек, для которых у сервера есть данные.
+ * Хранится столбцами: каталоги бывают на сотни тысяч станций
+ */
+public class LocationCatalog {
+    private final String[] names;
+    private final double[] lats;
+    private final double[] lons;
+
+    public LocationCatalog(String[] names, double[] lats, double[] lons) {
+        this.names = names;
+        this.lats = lats;
+        this.lons = lons;
+    }
+
+    public int size() { return names.length; }
+    public String getName(int index) { return names[index]; }
+    public double getLat(int index) { return lats[index]; }
+    public double getLon(int index) { return lons[index]; }
+
+    public double[] getLats() { return lats; }
+    public double[] getLons() { return lons; }
+}
@@ -0,0 +1,96 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Таймауты попытки по наблюдаемым задержкам эндпоинта.
+ *
+ * Для каждого пути хранится окно последних задержек; таймаут чтения и записи -
+ * p99 этого окна с запасом TIMEOUT_MULTIPLIER, но в пределах [MIN_TIMEOUT, MAX_TIMEOUT].
+ * Зависшая попытка обрывается раньше фиксированных 30 с, и у повтора остаётся время
+ * в пределах срока операции ({@link Deadline}).
+ *
+ * Таймаут попытки всегда меньше остатка срока вызова: иначе первым сработал бы call timeout,
+ * OkHttp сообщил бы об отмене, и {@link CircuitBreaker} с {@link EndpointPool} не узнали бы
+ * о зависшем сервере.
+ *
+ * Регистрируется после {@link PriorityDispatcher}, чтобы ожидание в очереди не считалось задержкой.
+ */
+public class AdaptiveTimeoutInterceptor implements Interceptor {
+    private static final int WINDOW_SIZE = 50;
+    private static final int MIN_SAMPLES = 10;
+    private static final double PERCENTILE = 0.99;
+    private static final int TIMEOUT_MULTIPLIER = 3;
+    private static final long MIN_TIMEOUT_MILLIS = 2_000;
+    private static final long MAX_TIMEOUT_MILLIS = 15_000;
+    // Пока замеров мало
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    // Насколько таймаут попытки меньше остатка срока вызова
+    private static final long DEADLINE_MARGIN_MILLIS = 500;
+
+    private final ConcurrentHashMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = request.url().encodedPath();
+        int timeout = (int) attemptTimeoutMillis(getTimeoutMillis(endpoint),
+                Deadline.remainingNanos(chain.call()));
+
+        long start = System.nanoTime();
+        Response response = chain
+                .withConnectTimeout(Math.min(timeout, chain.connectTimeoutMillis()), TimeUnit.MILLISECONDS)
+                .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+                .withWriteTimeout(timeout, TimeUnit.MILLISECONDS)
+                .proceed(request);
+        // Ответы 5xx бывают мгновенными и занизили бы таймаут
+        if (response.code() < 500) {
+            window(endpoint).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return response;
+    }
+
+    /**
+     * Текущий таймаут попытки для пути эндпоинта, например "/weather/current"
+     */
+    public long getTimeoutMillis(@NonNull String endpoint) {
+        LatencyWindow window = windows.get(endpoint);
+        if (window == null || window.size() < MIN_SAMPLES) {
+            return DEFAULT_TIMEOUT_MILLIS;
+        }
+        long timeout = window.percentile(PERCENTILE) * TIMEOUT_MULTIPLIER;
+        return Math.max(MIN_TIMEOUT_MILLIS, Math.min(MAX_TIMEOUT_MILLIS, timeout));
+    }
+
+    /**
+     * Таймаут попытки с учётом срока вызова; не меньше 1 мс (0 у OkHttp означает "без таймаута")
+     */
+    static long attemptTimeoutMillis(long timeoutMillis, long remainingNanos) {
+        if (remainingNanos == Long.MAX_VALUE) {
+            return timeoutMillis;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(remainingNanos);
+        return Math.max(1, Math.min(timeoutMillis, remaining - DEADLINE_MARGIN_MILLIS));
+    }
+
+    private LatencyWindow window(String endpoint) {
+        LatencyWindow window = windows.get(endpoint);
+        if (window == null) {
+            LatencyWindow created = new LatencyWindow(WINDOW_SIZE);
+            window = windows.putIfAbsent(endpoint, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        return window;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.weatherforecast.data.network;
+
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+
+/**
+ * Служебные запросы к серверу (логи клиента)
+ */
+public interface ApiService {
+    @Headers(RequestPriority.TELEMETRY_HEADER)
+    @POST("api/logs")
+    Call<Void> sendErrorLog(@Body RequestBody body);
+}
@@ -0,0 +1,204 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Предохранитель (circuit breaker) для запросов к серверу погоды.
+ *
+ * CLOSED - запросы идут как обычно, последние WINDOW_SIZE исходов хранятся в кольцевом буфере.
+ * Когда доля ошибок (сетевые исключения и ответы 5xx) достигает порога, предохранитель
+ * переходит в OPEN: запросы сразу завершаются {@link CircuitOpenException}, не дожидаясь
+ * таймаутов. Через OPEN_DURATION наступает HALF_OPEN: пропускается один пробный запрос,
+ * успех закрывает предохранитель, ошибка снова открывает его.
+ *
+ * Регистрируется после {@link RetryInterceptor} и {@link RateLimiter}, до PriorityDispatcher.
+ */
+public class CircuitBreaker implements Interceptor {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Получает переходы между состояниями; вызывается в потоке запроса
+     */
+    public interface Listener {
+        void onStateChanged(@NonNull State from, @NonNull State to);
+    }
+
+    private static final int WINDOW_SIZE = 20;
+    // Меньше исходов не считаем: пара ошибок после запуска не должна открывать предохранитель
+    private static final int MIN_CALLS = 6;
+    private static final int FAILURE_RATE_PERCENT = 50;
+    private static final long OPEN_DURATION_SECONDS = 30;
+
+    private final long openDurationNanos;
+    private final boolean[] outcomes = new boolean[WINDOW_SIZE]; // true - ошибка
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    @Nullable
+    private volatile Listener listener;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker() {
+        this(OPEN_DURATION_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Для тестов: короткое время в OPEN
+    CircuitBreaker(long openDuration, @NonNull TimeUnit unit) {
+        this.openDurationNanos = unit.toNanos(openDuration);
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        boolean probe = acquirePermission();
+
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            // Отмену вызвавшим кодом сбоем сервера не считаем; истёкший срок - считаем
+            if (Deadline.isCancelledByCaller(chain.call())) {
+                releaseProbe(probe);
+            } else {
+                onResult(probe, true);
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // Ошибка в коде клиента, не ответ сервера: исход не считаем, но пробу отпускаем,
+            // иначе HALF_OPEN навсегда отклонял бы запросы
+            releaseProbe(probe);
+            throw e;
+        }
+        onResult(probe, response.code() >= 500);
+        return response;
+    }
+
+    /**
+     * true, если запросы сейчас завершаются сразу, без обращения к серверу
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openDurationNanos;
+    }
+
+    @NonNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Сколько запросов отклонено без обращения к серверу
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    // Возвращает true, если запрос стал пробным
+    private boolean acquirePermission() throws CircuitOpenException {
+        State from;
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return false;
+            }
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    rejected.incrementAndGet();
+                    throw new CircuitOpenException("Weather server unavailable, circuit open");
+                }
+                from = state;
+                state = State.HALF_OPEN;
+            } else {
+                from = null;
+            }
+            // HALF_OPEN: одновременно идёт только один пробный запрос
+            if (probeInFlight) {
+                rejected.incrementAndGet();
+                throw new CircuitOpenException("Weather server unavailable, probe in progress");
+            }
+            probeInFlight = true;
+        }
+        if (from != null) {
+            notifyListener(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    private void releaseProbe(boolean probe) {
+        if (!probe) return;
+        synchronized (this) {
+            probeInFlight = false;
+        }
+    }
+
+    private void onResult(boolean probe, boolean failed) {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (probe) {
+                probeInFlight = false;
+                if (failed) {
+                    open();
+                } else {
+                    close();
+                }
+            } else if (state == State.CLOSED) {
+                record(failed);
+                if (recorded >= MIN_CALLS && failures * 100 >= recorded * FAILURE_RATE_PERCENT) {
+                    open();
+                }
+            }
+            // Исходы запросов, начатых до открытия, на состояние OPEN/HALF_OPEN не влияют
+            to = state;
+        }
+        if (from != to) {
+            notifyListener(from, to);
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recorded == WINDOW_SIZE) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % WINDOW_SIZE;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    private void notifyListener(State from, State to) {
+        Listener current = listener;
+        if (current != null) {
+            current.onStateChanged(from, to);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.weatherforecast.data.network;
+
+import java.io.IOException;
+
+/**
+ * Запрос не отправлялся: {@link CircuitBreaker} считает сервер недоступным
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+/**
+ * Считает новые соединения и запросы, получившие соединение.
+ *
+ * Разница показывает, насколько хорошо работает пул: при HTTP/2 текущая погода
+ * и прогноз должны идти по одному соединению, а после прогрева - вообще без нового.
+ * Один экземпляр обслуживает все вызовы, поэтому счётчики атомарные.
+ */
+public class ConnectionStatsListener extends EventListener {
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectionsOpened.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        connectionsAcquired.incrementAndGet();
+    }
+
+    public long getConnectionsOpened() { return connectionsOpened.get(); }
+    public long getConnectionsAcquired() { return connectionsAcquired.get(); }
+
+    /**
+     * Сколько запросов обошлись без установки нового соединения
+     */
+    public long getConnectionsReused() {
+        return Math.max(0, connectionsAcquired.get() - connectionsOpened.get());
+    }
+}
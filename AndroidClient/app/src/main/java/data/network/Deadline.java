@@ -0,0 +1,69 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import okio.Timeout;
+import retrofit2.Call;
+
+/**
+ * Срок всей операции: чтение кэша, сетевой запрос с повторами и разбор ответа.
+ * Каждый этап получает только оставшееся время, а не свой полный таймаут.
+ *
+ * Срок записывается и в Timeout вызова OkHttp (deadlineNanoTime), поэтому перехватчики
+ * знают, сколько осталось ({@link #remainingNanos(okhttp3.Call)}), и отличают истёкший срок
+ * от отмены вызвавшим кодом ({@link #isExpired(okhttp3.Call)})
+ */
+public final class Deadline {
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    @NonNull
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Ограничивает запрос оставшимся временем (call timeout OkHttp: соединение,
+     * повторы в перехватчиках и чтение тела). Таймаут срабатывает не раньше срока,
+     * так что после него {@link #isExpired()} уже true
+     */
+    public void applyTo(@NonNull Call<?> call) {
+        call.timeout().timeout(Math.max(1, expiresAtNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        call.timeout().deadlineNanoTime(expiresAtNanos);
+    }
+
+    /**
+     * Сколько наносекунд осталось до срока вызова; Long.MAX_VALUE, если срок не задан
+     */
+    public static long remainingNanos(@NonNull okhttp3.Call call) {
+        Timeout timeout = call.timeout();
+        return timeout.hasDeadline() ? timeout.deadlineNanoTime() - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * true, если срок вызова истёк: отмена такого вызова - таймаут, а не уход вызвавшего кода
+     */
+    public static boolean isExpired(@NonNull okhttp3.Call call) {
+        return remainingNanos(call) <= 0;
+    }
+
+    /**
+     * Отменён вызвавшим кодом, а не по истечении срока
+     */
+    public static boolean isCancelledByCaller(@NonNull okhttp3.Call call) {
+        return call.isCanceled() && !isExpired(call);
+    }
+}
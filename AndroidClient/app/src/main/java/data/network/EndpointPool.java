@@ -0,0 +1,228 @@
+package com.example.weatherforecast.data.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Распределение запросов по репликам сервера погоды.
+ *
+ * Retrofit строит адреса от {@link RetrofitClient#BASE_URL}, а этот перехватчик подменяет
+ * в них схему, хост и порт на выбранную реплику. Выбор - "два случайных" (power of two
+ * choices): из двух случайных здоровых реплик берётся та, у которой меньше EWMA задержки
+ * с учётом запросов в полёте. Без новых замеров EWMA постепенно затухает, чтобы медленная
+ * в прошлом реплика снова получила шанс. Реплика после EJECT_AFTER_FAILURES ошибок подряд (сетевые
+ * исключения и 5xx) исключается на EJECTION_DURATION, затем снова получает трафик.
+ *
+ * Регистрируется после {@link PriorityDispatcher} и {@link RetryInterceptor}, так что
+ * ожидание в очереди не входит в задержку, а повтор может уйти на другую реплику.
+ *
+ * Перехватчик приложения работает до HTTP-кэша OkHttp, поэтому кэш видит уже адрес реплики
+ * и хранит записи (и их ETag) отдельно для каждой. Подменить хост ниже кэша OkHttp не даёт:
+ * сетевой перехватчик обязан сохранить хост и порт. Цена ограничена: для каждого адреса
+ * и версии данных полный ответ 200 приходит не больше одного раза с каждой реплики, дальше
+ * любая реплика отвечает 304 (проверяет EndpointPoolTest).
+ */
+public class EndpointPool implements Interceptor {
+    private static final String TAG = "EndpointPool";
+
+    // Вес нового замера в EWMA
+    private static final double EWMA_ALPHA = 0.3;
+    // За это время без замеров EWMA уменьшается в e раз
+    private static final double EWMA_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // Замер для ошибки: реплика становится дороже, даже пока не исключена
+    private static final long FAILURE_PENALTY_MILLIS = 1_000;
+    private static final int EJECT_AFTER_FAILURES = 3;
+    private static final long EJECTION_DURATION_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Состояние одной реплики
+     */
+    private static final class Replica {
+        private final HttpUrl url;
+        private double ewmaMillis;
+        private long ewmaUpdatedAt = System.nanoTime();
+        private int inFlight;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        private long requests;
+
+        Replica(@NonNull HttpUrl url) {
+            this.url = url;
+        }
+
+        double ewma(long now) {
+            return ewmaMillis * Math.exp(-(now - ewmaUpdatedAt) / EWMA_DECAY_NANOS);
+        }
+
+        void record(long sampleMillis, long now) {
+            ewmaMillis = ewma(now) + EWMA_ALPHA * (sampleMillis - ewma(now));
+            ewmaUpdatedAt = now;
+        }
+
+        // Чем меньше, тем лучше; запросы в полёте учитываются, пока их задержка неизвестна
+        double score(long now) {
+            return ewma(now) * (inFlight + 1);
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil != 0 && now - ejectedUntil < 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return url + " ewma=" + Math.round(ewma(System.nanoTime())) + "ms inFlight=" + inFlight
+                    + " requests=" + requests + (isEjected(System.nanoTime()) ? " ejected" : "");
+        }
+    }
+
+    private final HttpUrl placeholder = HttpUrl.get(RetrofitClient.BASE_URL);
+    private List<Replica> replicas;
+    private final AtomicLong ejections = new AtomicLong();
+
+    public EndpointPool(@NonNull List<String> baseUrls) {
+        setReplicas(baseUrls);
+    }
+
+    /**
+     * Заменяет список реплик; статистика сбрасывается
+     */
+    public synchronized void setReplicas(@NonNull List<String> baseUrls) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one weather server is required");
+        }
+        List<Replica> list = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            list.add(new Replica(HttpUrl.get(baseUrl)));
+        }
+        replicas = Collections.unmodifiableList(list);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        // Прочие хосты (если появятся) не трогаем
+        if (!url.host().equals(placeholder.host()) || url.port() != placeholder.port()) {
+            return chain.proceed(request);
+        }
+
+        Replica replica = acquire();
+        HttpUrl target = url.newBuilder()
+                .scheme(replica.url.scheme())
+                .host(replica.url.host())
+                .port(replica.url.port())
+                .build();
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request.newBuilder().url(target).build());
+        } catch (IOException e) {
+            // Отмена - не вина реплики, а истёкший срок - её зависание
+            boolean canceled = Deadline.isCancelledByCaller(chain.call());
+            release(replica, canceled ? -1 : FAILURE_PENALTY_MILLIS, !canceled);
+            throw e;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        boolean failed = response.code() >= 500;
+        release(replica, failed ? Math.max(elapsed, FAILURE_PENALTY_MILLIS) : elapsed, failed);
+        return response;
+    }
+
+    // Вызывается на каждый запрос, поэтому кандидаты выбираются по номерам, без списков
+    private synchronized Replica acquire() {
+        long now = System.nanoTime();
+        int healthy = 0;
+        for (int i = 0; i < replicas.size(); i++) {
+            if (!replicas.get(i).isEjected(now)) healthy++;
+        }
+        // Все исключены: лучше попробовать хоть какую-то, чем не отправить запрос вовсе
+        boolean anyReplica = healthy == 0;
+        int count = anyReplica ? replicas.size() : healthy;
+
+        Replica chosen;
+        if (count == 1) {
+            chosen = candidate(0, anyReplica, now);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(count);
+            int second = random.nextInt(count - 1);
+            if (second >= first) second++;
+            Replica a = candidate(first, anyReplica, now);
+            Replica b = candidate(second, anyReplica, now);
+            chosen = a.score(now) <= b.score(now) ? a : b;
+        }
+        chosen.inFlight++;
+        chosen.requests++;
+        return chosen;
+    }
+
+    // index-я по счёту реплика среди неисключённых (или среди всех)
+    private Replica candidate(int index, boolean anyReplica, long now) {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            if (anyReplica || !replica.isEjected(now)) {
+                if (index-- == 0) return replica;
+            }
+        }
+        throw new IllegalStateException("No replica at " + index);
+    }
+
+    /**
+     * @param sampleMillis задержка для EWMA, -1 - не учитывать
+     */
+    private synchronized void release(Replica replica, long sampleMillis, boolean failed) {
+        long now = System.nanoTime();
+        replica.inFlight--;
+        if (sampleMillis >= 0) {
+            replica.record(sampleMillis, now);
+        }
+        if (!failed) {
+            replica.consecutiveFailures = 0;
+            replica.ejectedUntil = 0;
+            return;
+        }
+        if (++replica.consecutiveFailures >= EJECT_AFTER_FAILURES && !replica.isEjected(now)) {
+            replica.consecutiveFailures = 0;
+            replica.ejectedUntil = now + EJECTION_DURATION_NANOS;
+            ejections.incrementAndGet();
+            Log.w(TAG, "Ejecting " + replica.url + " for "
+                    + TimeUnit.NANOSECONDS.toSeconds(EJECTION_DURATION_NANOS) + " s");
+        }
+    }
+
+    /**
+     * Снимок состояния реплик для отладки
+     */
+    @NonNull
+    public synchronized List<String> describeReplicas() {
+        List<String> result = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            result.add(replica.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Сколько раз реплики исключались из-за ошибок
+     */
+    public long getEjectionCount() {
+        return ejections.get();
+    }
+}
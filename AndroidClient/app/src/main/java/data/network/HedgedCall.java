@@ -0,0 +1,166 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Запрос, который при задержке дублируется по правилам {@link HedgingPolicy}.
+ * Вызывающий получает один ответ - от того запроса, что завершился первым
+ */
+class HedgedCall<T> implements Call<T> {
+    private final Call<T> primary;
+    private final HedgingPolicy policy;
+
+    // Состояние меняется из коллбэков Retrofit и из потока таймера
+    private Call<T> hedge;
+    private ScheduledFuture<?> timer;
+    private Callback<T> callback;
+    private long startedAt;
+    private int running;
+    private boolean done;
+    private volatile boolean canceled;
+
+    HedgedCall(@NonNull Call<T> primary, @NonNull HedgingPolicy policy) {
+        this.primary = primary;
+        this.policy = policy;
+    }
+
+    @Override
+    public void enqueue(@NonNull Callback<T> callback) {
+        synchronized (this) {
+            this.callback = callback;
+            this.startedAt = System.nanoTime();
+            this.running = 1;
+            this.timer = policy.schedule(this::launchHedge, policy.getHedgeDelayMillis());
+        }
+        policy.onRequest();
+        primary.enqueue(new Attempt(false, startedAt));
+    }
+
+    private void launchHedge() {
+        Call<T> copy;
+        long launchedAt;
+        synchronized (this) {
+            if (done || canceled || !policy.tryHedge()) {
+                return;
+            }
+            copy = primary.clone();
+            // Копия укладывается в то, что осталось от срока исходного запроса
+            long callTimeout = primary.timeout().timeoutNanos();
+            if (callTimeout > 0) {
+                long remaining = callTimeout - (System.nanoTime() - startedAt);
+                if (remaining <= 0) return;
+                copy.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+            }
+            if (primary.timeout().hasDeadline()) {
+                copy.timeout().deadlineNanoTime(primary.timeout().deadlineNanoTime());
+            }
+            hedge = copy;
+            running++;
+            launchedAt = System.nanoTime();
+        }
+        copy.enqueue(new Attempt(true, launchedAt));
+    }
+
+    /**
+     * Коллбэк одной из попыток; результат передаётся дальше только один раз
+     */
+    private final class Attempt implements Callback<T> {
+        private final boolean isHedge;
+        // Задержка считается от отправки этой попытки: иначе в замер победившей копии
+        // вошла бы пауза перед ней, и порог для копий со временем рос бы
+        private final long sentAt;
+
+        Attempt(boolean isHedge, long sentAt) {
+            this.isHedge = isHedge;
+            this.sentAt = sentAt;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            Call<T> loser;
+            synchronized (HedgedCall.this) {
+                if (done) return;
+                done = true;
+                timer.cancel(false);
+                loser = isHedge ? primary : hedge;
+            }
+            if (loser != null) {
+                loser.cancel();
+            }
+            policy.recordLatency((System.nanoTime() - sentAt) / 1_000_000);
+            if (isHedge) {
+                policy.recordHedgeWin();
+            }
+            callback.onResponse(HedgedCall.this, response);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            synchronized (HedgedCall.this) {
+                // Пока вторая попытка ещё идёт, ошибка первой не окончательна
+                if (done || --running > 0) return;
+                done = true;
+                timer.cancel(false);
+            }
+            callback.onFailure(HedgedCall.this, t);
+        }
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        return primary.execute();
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return primary.isExecuted();
+    }
+
+    @Override
+    public void cancel() {
+        Call<T> copy;
+        synchronized (this) {
+            canceled = true;
+            copy = hedge;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+        primary.cancel();
+        if (copy != null) {
+            copy.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        // Проигравшая попытка тоже отменена, но сам запрос - нет
+        return canceled;
+    }
+
+    @NonNull
+    @Override
+    public Call<T> clone() {
+        return new HedgedCall<>(primary.clone(), policy);
+    }
+
+    @Override
+    public Request request() {
+        return primary.request();
+    }
+
+    @Override
+    public Timeout timeout() {
+        return primary.timeout();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit2.Call;
+
+/**
+ * Дублирование медленных запросов (hedged requests).
+ *
+ * Если ответ не пришёл за заданный перцентиль недавних задержек, отправляется копия
+ * запроса; побеждает первый ответ, второй запрос отменяется. На мобильной сети хвост
+ * задержек чаще всего даёт одно зависшее TCP-соединение, а не сервер, и копия его обходит.
+ * Копий не больше HEDGE_RATIO от запросов (см. {@link TokenBudget}), так что при
+ * медленном сервере нагрузка не удваивается.
+ */
+public class HedgingPolicy {
+    private static final int WINDOW_SIZE = 64;
+    // Пока замеров мало, перцентиль ненадёжен
+    private static final int MIN_SAMPLES = 10;
+    private static final long DEFAULT_DELAY_MILLIS = 1_000;
+    private static final long MIN_DELAY_MILLIS = 50;
+    private static final long MAX_DELAY_MILLIS = 5_000;
+
+    private static final double HEDGE_RATIO = 0.05;
+    private static final double MAX_TOKENS = 5;
+    private static final double INITIAL_TOKENS = 2;
+
+    // Таймеры всех политик; задачи короткие, одного потока хватает
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hedging-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double percentile;
+    private final TokenBudget budget = new TokenBudget(HEDGE_RATIO, MAX_TOKENS, INITIAL_TOKENS);
+
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW_SIZE);
+
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * @param percentile доля от 0 до 1, например 0.95: копия уходит, если запрос
+     *                   дольше 95% недавних
+     */
+    public HedgingPolicy(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Оборачивает запрос; дублирование работает только для enqueue
+     */
+    @NonNull
+    public <T> Call<T> wrap(@NonNull Call<T> call) {
+        return new HedgedCall<>(call, this);
+    }
+
+    /**
+     * Через сколько отправлять копию, если ответа ещё нет
+     */
+    public long getHedgeDelayMillis() {
+        if (latencies.size() < MIN_SAMPLES) {
+            return DEFAULT_DELAY_MILLIS;
+        }
+        long delay = latencies.percentile(percentile);
+        return Math.max(MIN_DELAY_MILLIS, Math.min(MAX_DELAY_MILLIS, delay));
+    }
+
+    void recordLatency(long millis) {
+        latencies.record(millis);
+    }
+
+    void onRequest() {
+        budget.deposit();
+    }
+
+    boolean tryHedge() {
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.incrementAndGet();
+            return false;
+        }
+        hedged.incrementAndGet();
+        return true;
+    }
+
+    void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    ScheduledFuture<?> schedule(@NonNull Runnable task, long delayMillis) {
+        return SCHEDULER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Сколько копий запросов было отправлено
+     */
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    /**
+     * Сколько раз копия ответила раньше исходного запроса
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Сколько копий не отправлено из-за исчерпанного бюджета
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.weatherforecast.data.network;
+
+import java.util.Arrays;
+
+/**
+ * Скользящее окно последних задержек и перцентили по нему
+ */
+public class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Перцентиль p (от 0 до 1) в миллисекундах; -1, если замеров нет
+     */
+    public synchronized long percentile(double p) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.weatherforecast.data.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Живые обновления текущей погоды по Server-Sent Events (GET /weather/stream).
+ *
+ * Сервер присылает событие "current" с новыми данными точки, когда они меняются, и
+ * "invalidate", когда данные точки пропали или часть событий могла быть пропущена.
+ * Соединение держит отдельный поток. После обрыва поток переподключается с полным разбросом
+ * паузы (от retry сервера до MAX_BACKOFF) и передаёт Last-Event-ID, чтобы сервер дослал
+ * пропущенное. Пауза сбрасывается, как только по соединению пришло событие. retry сервера
+ * не бывает меньше MIN_RETRY_MILLIS, иначе недоступный сервер получал бы запросы без пауз.
+ * Id события запоминается только после того, как событие доставлено целиком.
+ */
+public class LiveWeatherStream {
+    private static final String TAG = "LiveWeatherStream";
+
+    /**
+     * Получает события; вызывается в потоке соединения
+     */
+    public interface Listener {
+        void onCurrentWeather(double lat, double lon, @NonNull CurrentWeather weather);
+        void onInvalidate(double lat, double lon);
+    }
+
+    private static final String PATH = "weather/stream";
+    private static final long DEFAULT_RETRY_MILLIS = 3_000;
+    private static final long MIN_RETRY_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    // Сервер шлёт keep-alive каждые 15 секунд; дольше тишины - соединение мёртвое
+    private static final long READ_TIMEOUT_SECONDS = 45;
+
+    private final OkHttpClient client;
+    private final Gson gson;
+    private final Listener listener;
+    private final String baseUrl;
+    private final long minRetryMillis;
+
+    private Thread worker;
+    private Call activeCall;
+    // Общий для переподключений и смены точек: нумерация событий у сервера одна
+    private volatile String lastEventId;
+    private volatile long retryMillis = DEFAULT_RETRY_MILLIS;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    /**
+     * Сообщение из поля data события
+     */
+    private static final class Message {
+        @SerializedName("lat")
+        double lat;
+        @SerializedName("lon")
+        double lon;
+        @SerializedName("current")
+        CurrentWeather current;
+    }
+
+    public LiveWeatherStream(@NonNull OkHttpClient base, @NonNull Gson gson, @NonNull Listener listener) {
+        this(base, gson, listener, RetrofitClient.BASE_URL, MIN_RETRY_MILLIS);
+    }
+
+    // Для тестов: другой сервер и более короткая минимальная пауза
+    LiveWeatherStream(@NonNull OkHttpClient base, @NonNull Gson gson, @NonNull Listener listener,
+                      @NonNull String baseUrl, long minRetryMillis) {
+        // Перехватчики общего клиента рассчитаны на короткие запросы: повторы, лимит, слоты
+        // диспетчера и замеры задержек реплик. Бесконечный поток идёт мимо них и мимо HTTP-кэша
+        OkHttpClient.Builder builder = base.newBuilder()
+                .cache(null)
+                .callTimeout(0, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        this.client = builder.build();
+        this.gson = gson;
+        this.listener = listener;
+        this.baseUrl = baseUrl;
+        this.minRetryMillis = minRetryMillis;
+    }
+
+    /**
+     * Подписывается на точки (пары {lat, lon}); заменяет прежнюю подписку
+     */
+    public synchronized void subscribe(@NonNull List<double[]> locations) {
+        stop();
+        if (locations.isEmpty()) return;
+
+        HttpUrl.Builder url = HttpUrl.get(baseUrl).newBuilder()
+                .addPathSegments(PATH);
+        for (double[] location : locations) {
+            url.addQueryParameter("loc", location[0] + "," + location[1]);
+        }
+        HttpUrl streamUrl = url.build();
+        worker = new Thread(() -> run(streamUrl), "live-weather");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Закрывает соединение и прекращает переподключения
+     */
+    public synchronized void stop() {
+        if (worker == null) return;
+        worker.interrupt();
+        worker = null;
+        if (activeCall != null) {
+            activeCall.cancel();
+            activeCall = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return worker != null;
+    }
+
+    /**
+     * Сколько событий получено
+     */
+    public long getEventCount() {
+        return events.get();
+    }
+
+    /**
+     * Сколько раз соединение переустанавливалось
+     */
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    private void run(HttpUrl url) {
+        int failures = 0;
+        while (true) {
+            boolean received = false;
+            try {
+                Call call = newCall(url);
+                if (call == null) return;
+                try (Response response = call.execute()) {
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        throw new IOException("HTTP " + response.code());
+                    }
+                    received = read(body.source());
+                }
+                Log.d(TAG, "Stream closed by server");
+            } catch (IOException e) {
+                if (!isCurrent()) return;
+                Log.w(TAG, "Stream failed: " + e.getMessage());
+            }
+
+            failures = received ? 1 : failures + 1;
+            // Полный разброс: после сбоя сервера клиенты не возвращаются одновременно
+            long ceiling = Math.min(MAX_BACKOFF_MILLIS, retryMillis << Math.min(failures - 1, 10));
+            long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!isCurrent()) return;
+            reconnects.incrementAndGet();
+        }
+    }
+
+    // null, если подписку уже сменили или остановили
+    @Nullable
+    private synchronized Call newCall(HttpUrl url) {
+        if (worker != Thread.currentThread()) return null;
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .header("Accept", "text/event-stream");
+        String resumeFrom = lastEventId;
+        if (resumeFrom != null) {
+            request.header("Last-Event-ID", resumeFrom);
+        }
+        activeCall = client.newCall(request.build());
+        return activeCall;
+    }
+
+    private synchronized boolean isCurrent() {
+        return worker == Thread.currentThread();
+    }
+
+    /**
+     * Разбирает поток событий до его конца; true, если пришло хотя бы одно событие
+     */
+    private boolean read(BufferedSource source) throws IOException {
+        boolean received = false;
+        String event = null;
+        // Id копится до конца события: при обрыве посреди события оно не считается полученным
+        String pendingId = lastEventId;
+        List<String> data = new ArrayList<>();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // Пустая строка завершает событие
+                lastEventId = pendingId;
+                if (!data.isEmpty()) {
+                    dispatch(event != null ? event : "message", String.join("\n", data));
+                    received = true;
+                }
+                event = null;
+                data.clear();
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue; // комментарий, например keep-alive
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "event":
+                    event = value;
+                    break;
+                case "data":
+                    data.add(value);
+                    break;
+                case "id":
+                    pendingId = value;
+                    break;
+                case "retry":
+                    try {
+                        retryMillis = Math.max(minRetryMillis, Long.parseLong(value));
+                    } catch (NumberFormatException ignored) {
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return received;
+    }
+
+    private void dispatch(String event, String data) {
+        Message message;
+        try {
+            message = gson.fromJson(data, Message.class);
+        } catch (JsonParseException e) {
+            Log.w(TAG, "Malformed " + event + " event: " + e.getMessage());
+            return;
+        }
+        if (message == null) return;
+        events.incrementAndGet();
+
+        if ("current".equals(event) && message.current != null) {
+            listener.onCurrentWeather(message.lat, message.lon, message.current);
+        } else if ("invalidate".equals(event)) {
+            listener.onInvalidate(message.lat, message.lon);
+        }
+    }
+}
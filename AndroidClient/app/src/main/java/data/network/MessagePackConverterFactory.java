@@ -0,0 +1,92 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.weatherforecast.data.model.ApiResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Конвертер ответов ApiResponse&lt;T&gt; в формате MessagePack.
+ *
+ * Формат выбирается по Content-Type ответа: если сервер прислал JSON (нет
+ * библиотеки msgpack, старая версия сервера, ответ об ошибке), тело передаётся
+ * следующему конвертеру. Регистрировать нужно перед JSON-конвертерами.
+ */
+public final class MessagePackConverterFactory extends Converter.Factory {
+    public static final String MEDIA_TYPE = "application/x-msgpack";
+
+    private final Gson gson;
+
+    private MessagePackConverterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    @NonNull
+    public static MessagePackConverterFactory create(@NonNull Gson gson) {
+        return new MessagePackConverterFactory(gson);
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type,
+                                                            @NonNull Annotation[] annotations,
+                                                            @NonNull Retrofit retrofit) {
+        if (!(type instanceof ParameterizedType)
+                || ((ParameterizedType) type).getRawType() != ApiResponse.class) {
+            return null;
+        }
+        Type dataType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        TypeAdapter<?> dataAdapter = gson.getAdapter(TypeToken.get(dataType));
+        Converter<ResponseBody, ?> jsonConverter =
+                retrofit.nextResponseBodyConverter(this, type, annotations);
+        return new MessagePackResponseConverter<>(WeatherTypeAdapters.apiResponse(dataAdapter), jsonConverter);
+    }
+
+    private static final class MessagePackResponseConverter<T> implements Converter<ResponseBody, Object> {
+        private final TypeAdapter<T> adapter;
+        private final Converter<ResponseBody, ?> jsonConverter;
+
+        MessagePackResponseConverter(TypeAdapter<T> adapter, Converter<ResponseBody, ?> jsonConverter) {
+            this.adapter = adapter;
+            this.jsonConverter = jsonConverter;
+        }
+
+        @Override
+        public Object convert(@NonNull ResponseBody value) throws IOException {
+            if (!isMessagePack(value.contentType())) {
+                return jsonConverter.convert(value);
+            }
+
+            try {
+                MessagePackReader reader = new MessagePackReader(value.bytes());
+                T result = adapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("MessagePack document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        }
+
+        private static boolean isMessagePack(@Nullable MediaType contentType) {
+            return contentType != null
+                    && MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype());
+        }
+    }
+}
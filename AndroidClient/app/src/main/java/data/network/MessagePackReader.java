@@ -0,0 +1,350 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Читает MessagePack через интерфейс JsonReader.
+ *
+ * Благодаря этому те же адаптеры из {@link WeatherTypeAdapters} строят модели
+ * и из JSON, и из MessagePack. Поддерживаются nil, bool, целые, float, str,
+ * array и map; bin и ext в ответах сервера не встречаются и считаются ошибкой.
+ */
+public class MessagePackReader extends JsonReader {
+    private static final Reader UNREADABLE_READER = new Reader() {
+        @Override
+        public int read(@NonNull char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private static final int MAX_DEPTH = 32;
+
+    private final byte[] data;
+    private int position;
+
+    // Для каждого открытого контейнера: сколько элементов осталось (у map - ключи и значения)
+    private final int[] remaining = new int[MAX_DEPTH];
+    private final boolean[] isMap = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean rootConsumed;
+
+    public MessagePackReader(@NonNull byte[] data) {
+        super(UNREADABLE_READER);
+        this.data = data;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (depth == 0) {
+            if (rootConsumed) return JsonToken.END_DOCUMENT;
+        } else if (remaining[depth - 1] == 0) {
+            return isMap[depth - 1] ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        } else if (isMap[depth - 1] && remaining[depth - 1] % 2 == 0) {
+            return JsonToken.NAME;
+        }
+
+        int b = peekByte();
+        if (b <= 0x7f || b >= 0xe0) return JsonToken.NUMBER;
+        if (b <= 0x8f) return JsonToken.BEGIN_OBJECT;
+        if (b <= 0x9f) return JsonToken.BEGIN_ARRAY;
+        if (b <= 0xbf) return JsonToken.STRING;
+        switch (b) {
+            case 0xc0:
+                return JsonToken.NULL;
+            case 0xc2:
+            case 0xc3:
+                return JsonToken.BOOLEAN;
+            case 0xca: case 0xcb:
+            case 0xcc: case 0xcd: case 0xce: case 0xcf:
+            case 0xd0: case 0xd1: case 0xd2: case 0xd3:
+                return JsonToken.NUMBER;
+            case 0xd9: case 0xda: case 0xdb:
+                return JsonToken.STRING;
+            case 0xdc: case 0xdd:
+                return JsonToken.BEGIN_ARRAY;
+            case 0xde: case 0xdf:
+                return JsonToken.BEGIN_OBJECT;
+            default:
+                throw new IOException("Unsupported MessagePack type 0x" + Integer.toHexString(b)
+                        + " at " + position);
+        }
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        int b = readByte();
+        int size = b <= 0x9f ? b & 0x0f : (b == 0xdc ? readUnsigned(2) : readSize32());
+        push(size, false);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        depth--;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        int b = readByte();
+        int size = b <= 0x8f ? b & 0x0f : (b == 0xde ? readUnsigned(2) : readSize32());
+        push(size * 2, true);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        depth--;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY
+                && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        String name = readString();
+        consumed();
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        String value;
+        if (token == JsonToken.STRING) {
+            value = readString();
+        } else if (token == JsonToken.NUMBER) {
+            double number = readNumber();
+            value = number == (long) number ? Long.toString((long) number) : Double.toString(number);
+        } else {
+            throw new IllegalStateException("Expected STRING but was " + token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        boolean value = readByte() == 0xc3;
+        consumed();
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+        readByte();
+        consumed();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonToken token = peek();
+        double value;
+        if (token == JsonToken.NUMBER) {
+            value = readNumber();
+        } else if (token == JsonToken.STRING) {
+            value = Double.parseDouble(readString());
+        } else {
+            throw new IllegalStateException("Expected NUMBER but was " + token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        double value = nextDouble();
+        long result = (long) value;
+        if (result != value) {
+            throw new NumberFormatException("Expected a long but was " + value);
+        }
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        double value = nextDouble();
+        int result = (int) value;
+        if (result != value) {
+            throw new NumberFormatException("Expected an int but was " + value);
+        }
+        return result;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken token = peek();
+        switch (token) {
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) skipValue();
+                endArray();
+                break;
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case NAME:
+                nextName();
+                break;
+            case STRING:
+                nextString();
+                break;
+            case NUMBER:
+                nextDouble();
+                break;
+            case BOOLEAN:
+                nextBoolean();
+                break;
+            case NULL:
+                nextNull();
+                break;
+            default:
+                throw new IllegalStateException("Cannot skip " + token);
+        }
+    }
+
+    @Override
+    public void close() {
+        depth = 0;
+        rootConsumed = true;
+    }
+
+    @Override
+    public String getPath() {
+        return "$ (msgpack offset " + position + ")";
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        JsonToken actual = peek();
+        if (actual != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + actual
+                    + " at " + position);
+        }
+    }
+
+    private void push(int size, boolean map) throws IOException {
+        consumed();
+        if (depth == MAX_DEPTH) {
+            throw new IOException("MessagePack nesting too deep");
+        }
+        remaining[depth] = size;
+        isMap[depth] = map;
+        depth++;
+    }
+
+    // Отмечает, что очередной элемент текущего контейнера прочитан
+    private void consumed() {
+        if (depth == 0) {
+            rootConsumed = true;
+        } else {
+            remaining[depth - 1]--;
+        }
+    }
+
+    private String readString() throws IOException {
+        int b = readByte();
+        int length;
+        if (b >= 0xa0 && b <= 0xbf) {
+            length = b & 0x1f;
+        } else if (b == 0xd9) {
+            length = readUnsigned(1);
+        } else if (b == 0xda) {
+            length = readUnsigned(2);
+        } else if (b == 0xdb) {
+            length = readSize32();
+        } else {
+            throw new IllegalStateException("Expected STRING at " + (position - 1));
+        }
+        require(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private double readNumber() throws IOException {
+        int b = readByte();
+        if (b <= 0x7f) return b;
+        if (b >= 0xe0) return (byte) b;
+        switch (b) {
+            case 0xca: return Float.intBitsToFloat((int) readRaw(4));
+            case 0xcb: return Double.longBitsToDouble(readRaw(8));
+            case 0xcc: return readUnsigned(1);
+            case 0xcd: return readUnsigned(2);
+            case 0xce: return readRaw(4);
+            case 0xcf: {
+                long value = readRaw(8);
+                // uint64 больше Long.MAX_VALUE
+                return value >= 0 ? value : (double) (value >>> 1) * 2.0;
+            }
+            case 0xd0: return (byte) readRaw(1);
+            case 0xd1: return (short) readRaw(2);
+            case 0xd2: return (int) readRaw(4);
+            case 0xd3: return readRaw(8);
+            default:
+                throw new IllegalStateException("Expected NUMBER at " + (position - 1));
+        }
+    }
+
+    private int readSize32() throws IOException {
+        long size = readRaw(4);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("MessagePack container too large: " + size);
+        }
+        return (int) size;
+    }
+
+    private int readUnsigned(int bytes) throws IOException {
+        return (int) readRaw(bytes);
+    }
+
+    // Big-endian беззнаковое число из bytes байт
+    private long readRaw(int bytes) throws IOException {
+        require(bytes);
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (data[position++] & 0xff);
+        }
+        return value;
+    }
+
+    private int peekByte() throws IOException {
+        require(1);
+        return data[position] & 0xff;
+    }
+
+    private int readByte() throws IOException {
+        require(1);
+        return data[position++] & 0xff;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (bytes < 0 || position + bytes > data.length) {
+            throw new IOException("Truncated MessagePack payload at " + position);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Планировщик запросов по классам приоритета (см. {@link RequestPriority}).
+ *
+ * Стандартный Dispatcher OkHttp выпускает запросы строго по очереди, поэтому лавина
+ * отправки логов может задержать запрос, которого ждёт пользователь. Dispatcher
+ * настраивается пропускать всё сразу, а здесь поток запроса ждёт своей очереди. Общий лимит
+ * одновременных запросов делится между классами с собственными лимитами; освободившееся
+ * место получает самый приоритетный класс, внутри класса - по порядку поступления. Уже
+ * отправленные запросы не прерываются.
+ *
+ * Перед этим перехватчиком могут стоять только те, что не держат соединение: у клиента
+ * погоды это {@link RetryInterceptor}, {@link RateLimiter} и {@link CircuitBreaker} - пауза
+ * перед повтором, ожидание жетона и отказ предохранителя не занимают место в очереди.
+ * Всё, что обращается к сети, регистрируется после него.
+ *
+ * Ожидающий запрос просыпается, когда освобождается место или запрос отменяют. Об отмене
+ * сообщает EventListener клиента: {@link #newEventListener()} или свой, вызывающий
+ * {@link #onCanceled()}.
+ */
+public class PriorityDispatcher implements Interceptor {
+    private static final int MAX_CONCURRENT = 5;
+    // Лимиты Dispatcher OkHttp с запасом, чтобы его очередь не вмешивалась в порядок
+    private static final int OKHTTP_MAX_REQUESTS = 64;
+
+    private static final PriorityDispatcher INSTANCE = new PriorityDispatcher(MAX_CONCURRENT);
+
+    private final int maxConcurrent;
+    private final int[] running = new int[RequestPriority.values().length];
+    private final List<ArrayDeque<Object>> queues;
+    private int totalRunning;
+
+    private final AtomicLong[] started = new AtomicLong[RequestPriority.values().length];
+    private final AtomicLong preempted = new AtomicLong();
+
+    /**
+     * Общий экземпляр: все клиенты приложения делят один лимит
+     */
+    @NonNull
+    public static PriorityDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Dispatcher OkHttp, который не держит запросы в своей очереди FIFO:
+     * порядок определяет PriorityDispatcher
+     */
+    @NonNull
+    public static Dispatcher newOkHttpDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(OKHTTP_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(OKHTTP_MAX_REQUESTS);
+        return dispatcher;
+    }
+
+    public PriorityDispatcher(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        this.queues = new ArrayList<>(RequestPriority.values().length);
+        for (int i = 0; i < RequestPriority.values().length; i++) {
+            queues.add(new ArrayDeque<>());
+            started[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * EventListener для клиента без своего: сообщает только об отмене запросов
+     */
+    @NonNull
+    public EventListener newEventListener() {
+        return new EventListener() {
+            @Override
+            public void canceled(@NonNull Call call) {
+                onCanceled();
+            }
+        };
+    }
+
+    /**
+     * Будит ожидающие запросы, чтобы отменённый сразу ушёл из очереди.
+     * Вызывается из EventListener.canceled клиента, который использует этот перехватчик
+     */
+    public synchronized void onCanceled() {
+        notifyAll();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestPriority priority = RequestPriority.fromHeader(request.header(RequestPriority.HEADER));
+        if (request.header(RequestPriority.HEADER) != null) {
+            request = request.newBuilder().removeHeader(RequestPriority.HEADER).build();
+        }
+
+        acquire(priority, chain.call());
+        try {
+            return chain.proceed(request);
+        } finally {
+            release(priority);
+        }
+    }
+
+    private synchronized void acquire(RequestPriority priority, Call call) throws IOException {
+        Object ticket = new Object();
+        ArrayDeque<Object> queue = queues.get(priority.ordinal());
+        queue.addLast(ticket);
+        try {
+            // Будят release и onCanceled
+            while (!canStart(priority, ticket)) {
+                if (call.isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + priority);
+        } finally {
+            queue.remove(ticket);
+            // Место в очереди могло освободиться для следующего
+            notifyAll();
+        }
+
+        // Обогнали ожидающие запросы младших классов
+        for (int i = priority.ordinal() + 1; i < queues.size(); i++) {
+            if (!queues.get(i).isEmpty()) {
+                preempted.incrementAndGet();
+                break;
+            }
+        }
+        running[priority.ordinal()]++;
+        totalRunning++;
+        started[priority.ordinal()].incrementAndGet();
+    }
+
+    private boolean canStart(RequestPriority priority, Object ticket) {
+        if (totalRunning >= maxConcurrent
+                || running[priority.ordinal()] >= priority.getMaxConcurrent()
+                || queues.get(priority.ordinal()).peekFirst() != ticket) {
+            return false;
+        }
+        // Старший класс, который может стартовать, идёт первым
+        for (RequestPriority higher : RequestPriority.values()) {
+            if (higher == priority) break;
+            if (!queues.get(higher.ordinal()).isEmpty()
+                    && running[higher.ordinal()] < higher.getMaxConcurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void release(RequestPriority priority) {
+        running[priority.ordinal()]--;
+        totalRunning--;
+        notifyAll();
+    }
+
+    public long getStartedCount(@NonNull RequestPriority priority) {
+        return started[priority.ordinal()].get();
+    }
+
+    /**
+     * Сколько раз запрос старшего класса был запущен раньше ожидающих младших
+     */
+    public long getPreemptedCount() {
+        return preempted.get();
+    }
+
+    public synchronized int getQueuedCount(@NonNull RequestPriority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+}
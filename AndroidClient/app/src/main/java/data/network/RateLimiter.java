@@ -0,0 +1,169 @@
+package com.example.weatherforecast.data.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Ограничение исходящих запросов к серверу погоды (token bucket) и соблюдение Retry-After.
+ *
+ * Жетоны копятся со скоростью RATE_PER_SECOND до BURST. Фоновые запросы и логи без жетона
+ * ждут его, поэтому массовое пробуждение устройств растягивается во времени. Интерактивные
+ * запросы не ждут никогда: они берут жетон в долг (до -BURST), и ждать приходится фоновым.
+ *
+ * Если сервер ответил 429 или 503 с Retry-After, до указанного момента фоновые запросы
+ * ждут, а интерактивные сразу завершаются {@link RetryAfterException} - репозиторий
+ * в этом случае отдаёт данные из кэша. Ожидание, которое не укладывается в call timeout
+ * запроса ({@link Deadline}), тоже заканчивается этим исключением, а не таймаутом.
+ *
+ * Регистрируется после {@link RetryInterceptor} и до {@link CircuitBreaker}: повтор проходит
+ * через ограничение, ожидание не занимает место в {@link PriorityDispatcher}, а отказ
+ * по Retry-After не считается сбоем сервера.
+ */
+public class RateLimiter implements Interceptor {
+    private static final String TAG = "RateLimiter";
+
+    private static final double RATE_PER_SECOND = 2;
+    private static final double BURST = 6;
+    // Слишком долгую паузу от сервера не соблюдаем дословно
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private double tokens = BURST;
+    private long refilledAt = System.nanoTime();
+    private long blockedUntil;
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retryAfterHints = new AtomicLong();
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean interactive = RequestPriority.fromHeader(request.header(RequestPriority.HEADER))
+                == RequestPriority.INTERACTIVE;
+        long callTimeout = chain.call().timeout().timeoutNanos();
+        long deadline = callTimeout > 0 ? System.nanoTime() + callTimeout : 0;
+
+        long wait = reserve(interactive);
+        if (wait > 0) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(wait);
+            if (interactive) {
+                throw new RetryAfterException("Server asked to retry later", waitMillis);
+            }
+            if (deadline != 0 && deadline - System.nanoTime() <= wait) {
+                release();
+                throw new RetryAfterException("Rate limited longer than the request deadline", waitMillis);
+            }
+            throttled.incrementAndGet();
+            sleep(wait, chain);
+        }
+
+        Response response = chain.proceed(request);
+        if (response.code() == 429 || response.code() == 503) {
+            long retryAfter = parseRetryAfter(response);
+            if (retryAfter > 0) {
+                block(retryAfter);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Берёт жетон и возвращает, сколько наносекунд ждать перед отправкой.
+     * Интерактивному запросу ненулевое значение означает отказ по Retry-After, жетон не берётся
+     */
+    private synchronized long reserve(boolean interactive) {
+        long now = System.nanoTime();
+        tokens = Math.min(BURST, tokens + (now - refilledAt) / 1e9 * RATE_PER_SECOND);
+        refilledAt = now;
+
+        long blocked = Math.max(0, blockedUntil - now);
+        if (interactive) {
+            if (blocked == 0) {
+                tokens = Math.max(-BURST, tokens - 1);
+            }
+            return blocked;
+        }
+        // Жетон списывается сразу; отрицательный баланс - очередь ожидающих
+        tokens -= 1;
+        long tokenWait = tokens >= 0 ? 0 : (long) (-tokens / RATE_PER_SECOND * 1e9);
+        return Math.max(blocked, tokenWait);
+    }
+
+    // Фоновый запрос не ушёл: возвращаем жетон
+    private synchronized void release() {
+        tokens = Math.min(BURST, tokens + 1);
+    }
+
+    private synchronized void block(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+        retryAfterHints.incrementAndGet();
+        Log.w(TAG, "Server asked to retry after " + millis + " ms");
+    }
+
+    /**
+     * Retry-After в секундах или как HTTP-дата; 0, если заголовка нет
+     */
+    private static long parseRetryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) return 0;
+        long millis;
+        try {
+            millis = TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            if (date == null) return 0;
+            millis = date.getTime() - System.currentTimeMillis();
+        }
+        return Math.max(0, Math.min(MAX_RETRY_AFTER_MILLIS, millis));
+    }
+
+    // Запрос, отменённый во время ожидания, не уходит: его жетон возвращается, иначе
+    // отменённые ожидающие сдвигали бы все следующие запросы
+    private void sleep(long nanos, Chain chain) throws IOException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(nanos) + 1;
+        try {
+            while (remaining > 0) {
+                if (chain.call().isCanceled()) {
+                    release();
+                    throw new IOException("Canceled");
+                }
+                long step = Math.min(remaining, CANCEL_CHECK_MILLIS);
+                Thread.sleep(step);
+                remaining -= step;
+            }
+        } catch (InterruptedException e) {
+            release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rate limited");
+        }
+    }
+
+    /**
+     * Сколько запросов ждали жетона или окончания Retry-After
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Сколько раз сервер присылал Retry-After
+     */
+    public long getRetryAfterCount() {
+        return retryAfterHints.get();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Класс приоритета HTTP-запроса для {@link PriorityDispatcher}.
+ *
+ * Запрос указывает класс заголовком X-Request-Priority (в Retrofit - через @Headers
+ * с константами ниже); перед отправкой на сервер заголовок убирается.
+ */
+public enum RequestPriority {
+    // То, чего пользователь ждёт на экране
+    INTERACTIVE(4),
+    // Фоновые обновления и предзагрузка
+    PREFETCH(2),
+    // Логи и диагностика
+    TELEMETRY(1);
+
+    public static final String HEADER = "X-Request-Priority";
+    public static final String INTERACTIVE_HEADER = HEADER + ": interactive";
+    public static final String PREFETCH_HEADER = HEADER + ": prefetch";
+    public static final String TELEMETRY_HEADER = HEADER + ": telemetry";
+
+    private final int maxConcurrent;
+
+    RequestPriority(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Сколько запросов этого класса может выполняться одновременно
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Класс по значению заголовка; без заголовка запрос считается фоновым
+     */
+    public static RequestPriority fromHeader(@Nullable String value) {
+        if (value == null) return PREFETCH;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return PREFETCH;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Сетевой перехватчик, считающий полные ответы (200) и ответы 304 Not Modified.
+ *
+ * Должен регистрироваться через addNetworkInterceptor: только там виден настоящий
+ * код ответа сервера, до того как OkHttp подставит тело из HTTP-кэша.
+ */
+public class ResponseStatsInterceptor implements Interceptor {
+    private final AtomicLong fullResponses = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    private final AtomicLong otherResponses = new AtomicLong();
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        switch (response.code()) {
+            case HttpURLConnection.HTTP_OK:
+                fullResponses.incrementAndGet();
+                break;
+            case HttpURLConnection.HTTP_NOT_MODIFIED:
+                notModifiedResponses.incrementAndGet();
+                break;
+            default:
+                otherResponses.incrementAndGet();
+                break;
+        }
+        return response;
+    }
+
+    public long getFullResponseCount() { return fullResponses.get(); }
+    public long getNotModifiedCount() { return notModifiedResponses.get(); }
+    public long getOtherResponseCount() { return otherResponses.get(); }
+}
@@ -0,0 +1,48 @@
+package com.example.weatherforecast.data.network;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+/**
+ * Retrofit для служебных запросов (см. {@link ApiService}).
+ *
+ * Использует тот же {@link PriorityDispatcher}, что и запросы погоды, поэтому
+ * отправка логов не отнимает места у запросов, которых ждёт пользователь.
+ */
+public final class RetrofitClient {
+    public static final String BASE_URL = "http://10.0.2.2:5000/";  // Для эмулятора
+
+    /**
+     * Реплики сервера погоды; запросы погоды распределяет между ними {@link EndpointPool}.
+     * Например, для локальных стендов: "http://10.0.2.2:5001/", "http://10.0.2.2:5002/"
+     */
+    public static final String[] WEATHER_SERVERS = {
+            BASE_URL
+    };
+
+    private static ApiService apiService;
+
+    private RetrofitClient() {
+    }
+
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .dispatcher(PriorityDispatcher.newOkHttpDispatcher())
+                    .addInterceptor(PriorityDispatcher.getInstance())
+                    .eventListener(PriorityDispatcher.getInstance().newEventListener())
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(30, TimeUnit.SECONDS)
+                    .build();
+            apiService = new Retrofit.Builder()
+                    .baseUrl(BASE_URL)
+                    .client(client)
+                    .build()
+                    .create(ApiService.class);
+        }
+        return apiService;
+    }
+}
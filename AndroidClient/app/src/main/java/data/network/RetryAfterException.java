@@ -0,0 +1,22 @@
+package com.example.weatherforecast.data.network;
+
+import java.io.IOException;
+
+/**
+ * Запрос не отправлялся: сервер попросил подождать (Retry-After), см. {@link RateLimiter}
+ */
+public class RetryAfterException extends IOException {
+    private final long retryAfterMillis;
+
+    public RetryAfterException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Сколько ещё сервер просит не присылать запросы
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.weatherforecast.data.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * Автоматические повторы идемпотентных запросов (GET, HEAD).
+ *
+ * Повторяются сетевые ошибки и ответы 502/503/504. Пауза перед повтором - экспоненциальная
+ * с полным разбросом (full jitter): случайное время от нуля до base * 2^попытка, но не больше
+ * MAX_BACKOFF, поэтому устройства не бьют в сервер синхронно. Общее число повторов ограничено
+ * бюджетом (token bucket): каждый исходный запрос добавляет RETRY_RATIO жетона, повтор
+ * тратит один, так что повторы не превышают примерно 10% трафика даже при массовых сбоях.
+ *
+ * Повтор не начинается, если пауза не укладывается в call timeout запроса ({@link Deadline}).
+ *
+ * Регистрируется перед {@link CircuitBreaker}: каждая попытка учитывается предохранителем,
+ * а отказ открытого предохранителя не повторяется. Отказ {@link RateLimiter} по Retry-After
+ * тоже не повторяется.
+ */
+public class RetryInterceptor implements Interceptor {
+    private static final String TAG = "RetryInterceptor";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 4_000;
+    // Как часто спящий повтор проверяет, не отменили ли запрос
+    private static final long CANCEL_CHECK_MILLIS = 100;
+    private static final long DEADLINE_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final double RETRY_RATIO = 0.1;
+    private static final double MAX_TOKENS = 10;
+    private static final double INITIAL_TOKENS = 3;
+
+    private final TokenBudget budget = new TokenBudget(RETRY_RATIO, MAX_TOKENS, INITIAL_TOKENS);
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isIdempotent(request)) {
+            return chain.proceed(request);
+        }
+        budget.deposit();
+        // Без Deadline.applyTo срок вызова - call timeout клиента. Перехватчик первый в цепочке,
+        // так что таймаут отсчитывается почти отсюда; записанный срок чуть раньше настоящего,
+        // чтобы после срабатывания таймаута Deadline.isExpired уже был true
+        Timeout timeout = chain.call().timeout();
+        if (!timeout.hasDeadline() && timeout.timeoutNanos() > 0) {
+            timeout.deadlineNanoTime(System.nanoTime() + timeout.timeoutNanos() - DEADLINE_SLACK_NANOS);
+        }
+        long deadline = timeout.hasDeadline() ? timeout.deadlineNanoTime() : 0;
+
+        for (int attempt = 1; ; attempt++) {
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (e instanceof SocketTimeoutException) {
+                    Log.e(TAG, "Socket timeout", e);
+                } else if (e instanceof UnknownHostException) {
+                    Log.e(TAG, "No internet connection", e);
+                }
+                long delay = isRetryable(e, chain) ? nextDelay(attempt, deadline) : -1;
+                if (delay < 0) {
+                    throw e;
+                }
+                sleep(delay, chain);
+                continue;
+            }
+
+            long delay = isRetryable(response.code()) ? nextDelay(attempt, deadline) : -1;
+            if (delay < 0) {
+                return response;
+            }
+            response.close();
+            sleep(delay, chain);
+        }
+    }
+
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    private static boolean isRetryable(IOException e, Chain chain) {
+        return !(e instanceof CircuitOpenException) && !(e instanceof RetryAfterException)
+                && !chain.call().isCanceled();
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Пауза перед следующей попыткой в мс или -1, если повторять нельзя
+     */
+    private long nextDelay(int attempt, long deadline) {
+        if (attempt >= MAX_ATTEMPTS) {
+            return -1;
+        }
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        // Жетон не тратим: после паузы на попытку всё равно не останется времени
+        if (deadline != 0 && deadline - System.nanoTime() <= delay * 1_000_000) {
+            Log.w(TAG, "No time left for a retry after attempt " + attempt);
+            return -1;
+        }
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.incrementAndGet();
+            Log.w(TAG, "Retry budget exhausted, giving up after attempt " + attempt);
+            return -1;
+        }
+        retries.incrementAndGet();
+        return delay;
+    }
+
+    private void sleep(long delay, Chain chain) throws IOException {
+        long remaining = delay;
+        Log.d(TAG, "Retrying " + chain.request().url() + " in " + delay + " ms");
+        try {
+            while (remaining > 0) {
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                long step = Math.min(remaining, CANCEL_CHECK_MILLIS);
+                Thread.sleep(step);
+                remaining -= step;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+
+    /**
+     * Сколько повторов было выполнено
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Сколько раз повтор не выполнен из-за исчерпанного бюджета
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.weatherforecast.data.model.ApiResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Конвертер Retrofit для ответов ApiResponse&lt;T&gt;.
+ *
+ * Конверт разбирается потоково прямо из Okio-источника тела ответа, а поле data -
+ * адаптером из переданного Gson (для моделей погоды это {@link WeatherTypeAdapters}).
+ * Остальные типы отдаются следующей фабрике, поэтому регистрировать его нужно
+ * перед GsonConverterFactory.
+ */
+public final class StreamingJsonConverterFactory extends Converter.Factory {
+    private final Gson gson;
+
+    private StreamingJsonConverterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    @NonNull
+    public static StreamingJsonConverterFactory create(@NonNull Gson gson) {
+        return new StreamingJsonConverterFactory(gson);
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type,
+                                                            @NonNull Annotation[] annotations,
+                                                            @NonNull Retrofit retrofit) {
+        if (!(type instanceof ParameterizedType)
+                || ((ParameterizedType) type).getRawType() != ApiResponse.class) {
+            return null;
+        }
+        Type dataType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        TypeAdapter<?> dataAdapter = gson.getAdapter(TypeToken.get(dataType));
+        return new StreamingResponseConverter<>(WeatherTypeAdapters.apiResponse(dataAdapter));
+    }
+
+    private static final class StreamingResponseConverter<T> implements Converter<ResponseBody, T> {
+        private final TypeAdapter<T> adapter;
+
+        StreamingResponseConverter(TypeAdapter<T> adapter) {
+            this.adapter = adapter;
+        }
+
+        @Override
+        public T convert(@NonNull ResponseBody value) throws IOException {
+            try (JsonReader reader = new JsonReader(new InputStreamReader(
+                    value.source().inputStream(), StandardCharsets.UTF_8))) {
+                T result = adapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        }
+    }
+}
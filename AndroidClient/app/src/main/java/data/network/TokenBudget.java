@@ -0,0 +1,41 @@
+package com.example.weatherforecast.data.network;
+
+/**
+ * Бюджет дополнительных запросов (token bucket).
+ *
+ * Каждый обычный запрос пополняет бюджет на ratio жетона, дополнительный запрос
+ * (повтор, дублирование) тратит один жетон. Так дополнительных запросов не больше
+ * доли ratio от трафика, сколько бы сбоев ни было.
+ */
+public class TokenBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * @param initialTokens запас, чтобы первые сбои после запуска тоже можно было обработать
+     */
+    public TokenBudget(double ratio, double maxTokens, double initialTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = Math.min(maxTokens, initialTokens);
+    }
+
+    /**
+     * Учитывает обычный запрос
+     */
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * Тратит жетон на дополнительный запрос. false - бюджет исчерпан
+     */
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import com.example.weatherforecast.data.model.ApiResponse;
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.data.model.ForecastDelta;
+import com.example.weatherforecast.data.model.LocationCatalog;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Написанные вручную потоковые адаптеры Gson для моделей погоды.
+ *
+ * Читают JSON по токенам и сразу создают модели, без рефлексии и без
+ * промежуточного дерева JsonElement. Имена полей совпадают с @SerializedName моделей.
+ */
+public final class WeatherTypeAdapters {
+
+    private WeatherTypeAdapters() {
+    }
+
+    /**
+     * Фабрика для GsonBuilder.registerTypeAdapterFactory
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            if (raw == CurrentWeather.class) {
+                return (TypeAdapter<T>) CURRENT_WEATHER;
+            }
+            if (raw == ForecastData.class) {
+                return (TypeAdapter<T>) FORECAST_DATA;
+            }
+            if (raw == ForecastData.ForecastItem.class) {
+                return (TypeAdapter<T>) FORECAST_ITEM;
+            }
+            if (raw == ForecastDelta.class) {
+                return (TypeAdapter<T>) FORECAST_DELTA;
+            }
+            if (raw == LocationCatalog.class) {
+                return (TypeAdapter<T>) LOCATION_CATALOG;
+            }
+            return null;
+        }
+    };
+
+    public static final TypeAdapter<CurrentWeather> CURRENT_WEATHER = new TypeAdapter<CurrentWeather>() {
+        @Override
+        public void write(JsonWriter out, CurrentWeather value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("city").value(value.getCity());
+            out.name("temperature").value(value.getTemperature());
+            out.name("condition").value(value.getCondition());
+            out.name("humidity").value(value.getHumidity());
+            out.name("wind_speed").value(value.getWindSpeed());
+            out.name("wind_direction").value(value.getWindDirection());
+            out.name("timestamp").value(value.getTimestamp());
+            out.endObject();
+        }
+
+        @Override
+        public CurrentWeather read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String city = null;
+            double temperature = 0;
+            String condition = null;
+            int humidity = 0;
+            double windSpeed = 0;
+            String windDirection = null;
+            String timestamp = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "city": city = in.nextString(); break;
+                    case "temperature": temperature = in.nextDouble(); break;
+                    case "condition": condition = in.nextString(); break;
+                    case "humidity": humidity = in.nextInt(); break;
+                    case "wind_speed": windSpeed = in.nextDouble(); break;
+                    case "wind_direction": windDirection = in.nextString(); break;
+                    case "timestamp": timestamp = in.nextString(); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new CurrentWeather(city, temperature, condition, humidity,
+                    windSpeed, windDirection, timestamp);
+        }
+    };
+
+    public static final TypeAdapter<ForecastData.ForecastItem> FORECAST_ITEM =
+            new TypeAdapter<ForecastData.ForecastItem>() {
+        @Override
+        public void write(JsonWriter out, ForecastData.ForecastItem value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("datetime").value(value.getDatetime());
+            out.name("temperature_min").value(value.getTemperatureMin());
+            out.name("temperature_max").value(value.getTemperatureMax());
+            out.name("condition").value(value.getCondition());
+            out.endObject();
+        }
+
+        @Override
+        public ForecastData.ForecastItem read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String datetime = null;
+            int temperatureMin = 0;
+            int temperatureMax = 0;
+            String condition = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "datetime": datetime = in.nextString(); break;
+                    case "temperature_min": temperatureMin = in.nextInt(); break;
+                    case "temperature_max": temperatureMax = in.nextInt(); break;
+                    case "condition": condition = in.nextString(); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new ForecastData.ForecastItem(datetime, temperatureMin, temperatureMax, condition);
+        }
+    };
+
+    public static final TypeAdapter<ForecastData> FORECAST_DATA = new TypeAdapter<ForecastData>() {
+        @Override
+        public void write(JsonWriter out, ForecastData value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            String version;
+            List<ForecastData.ForecastItem> items;
+            // applyDelta заменяет дни и версию под монитором объекта: пишем их из одного снимка
+            synchronized (value) {
+                version = value.getVersion();
+                items = value.getForecast();
+            }
+            out.beginObject();
+            out.name("city").value(value.getCity());
+            out.name("version").value(version);
+            out.name("forecast");
+            writeItems(out, items);
+            out.endObject();
+        }
+
+        @Override
+        public ForecastData read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String city = null;
+            String version = null;
+            List<ForecastData.ForecastItem> items = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "city":
+                        city = in.nextString();
+                        break;
+                    case "version":
+                        version = in.nextString();
+                        break;
+                    case "forecast":
+                        items = readItems(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new ForecastData(city, version, items);
+        }
+    };
+
+    public static final TypeAdapter<ForecastDelta> FORECAST_DELTA = new TypeAdapter<ForecastDelta>() {
+        @Override
+        public void write(JsonWriter out, ForecastDelta value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("city").value(value.getCity());
+            out.name("version").value(value.getVersion());
+            out.name("base_version").value(value.getBaseVersion());
+            out.name("full").value(value.isFull());
+            out.name("changed");
+            writeItems(out, value.getChanged());
+            out.name("removed");
+            if (value.getRemoved() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (String datetime : value.getRemoved()) {
+                    out.value(datetime);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ForecastDelta read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String city = null;
+            String version = null;
+            String baseVersion = null;
+            boolean full = false;
+            List<ForecastData.ForecastItem> changed = null;
+            List<String> removed = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "city": city = in.nextString(); break;
+                    case "version": version = in.nextString(); break;
+                    case "base_version": baseVersion = in.nextString(); break;
+                    case "full": full = in.nextBoolean(); break;
+                    case "changed": changed = readItems(in); break;
+                    case "removed":
+                        // Обычно удаляется один прошедший день
+                        removed = new ArrayList<>(2);
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            removed.add(in.nextString());
+                        }
+                        in.endArray();
+                        break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new ForecastDelta(city, version, baseVersion, full, changed, removed);
+        }
+    };
+
+    /**
+     * {"locations": [{"name", "lat", "lon"}, ...]} сразу в столбцы, без объекта на точку
+     */
+    public static final TypeAdapter<LocationCatalog> LOCATION_CATALOG = new TypeAdapter<LocationCatalog>() {
+        @Override
+        public void write(JsonWriter out, LocationCatalog value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("locations");
+            out.beginArray();
+            for (int i = 0; i < value.size(); i++) {
+                out.beginObject();
+                out.name("name").value(value.getName(i));
+                out.name("lat").value(value.getLat(i));
+                out.name("lon").value(value.getLon(i));
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public LocationCatalog read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int size = 0;
+            String[] names = new String[16];
+            double[] lats = new double[16];
+            double[] lons = new double[16];
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!"locations".equals(in.nextName()) || in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (size == names.length) {
+                        names = Arrays.copyOf(names, size * 2);
+                        lats = Arrays.copyOf(lats, size * 2);
+                        lons = Arrays.copyOf(lons, size * 2);
+                    }
+                    String name = null;
+                    double lat = Double.NaN;
+                    double lon = Double.NaN;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String field = in.nextName();
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            continue;
+                        }
+                        switch (field) {
+                            case "name": name = in.nextString(); break;
+                            case "lat": lat = in.nextDouble(); break;
+                            case "lon": lon = in.nextDouble(); break;
+                            default: in.skipValue(); break;
+                        }
+                    }
+                    in.endObject();
+                    // Точка без координат бесполезна для поиска
+                    if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+                        names[size] = name;
+                        lats[size] = lat;
+                        lons[size] = lon;
+                        size++;
+                    }
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return new LocationCatalog(Arrays.copyOf(names, size), Arrays.copyOf(lats, size),
+                    Arrays.copyOf(lons, size));
+        }
+    };
+
+    private static List<ForecastData.ForecastItem> readItems(JsonReader in) throws IOException {
+        // Прогноз обычно на 5-7 дней
+        List<ForecastData.ForecastItem> items = new ArrayList<>(8);
+        in.beginArray();
+        while (in.hasNext()) {
+            items.add(FORECAST_ITEM.read(in));
+        }
+        in.endArray();
+        return items;
+    }
+
+    private static void writeItems(JsonWriter out, List<ForecastData.ForecastItem> items) throws IOException {
+        if (items == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (ForecastData.ForecastItem item : items) {
+            FORECAST_ITEM.write(out, item);
+        }
+        out.endArray();
+    }
+
+    /**
+     * Адаптер конверта ApiResponse: поле data читается переданным адаптером
+     */
+    @NonNull
+    public static <T> TypeAdapter<ApiResponse<T>> apiResponse(@NonNull TypeAdapter<T> dataAdapter) {
+        return new TypeAdapter<ApiResponse<T>>() {
+            @Override
+            public void write(JsonWriter out, ApiResponse<T> value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginObject();
+                out.name("data");
+                dataAdapter.write(out, value.getData());
+                out.name("status").value(value.getStatus());
+                out.name("timestamp").value(value.getTimestamp());
+                out.name("message").value(value.getMessage());
+                out.endObject();
+            }
+
+            @Override
+            public ApiResponse<T> read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                T data = null;
+                String status = null;
+                String timestamp = null;
+                String message = null;
+
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                        case "data": data = dataAdapter.read(in); break;
+                        case "status": status = in.nextString(); break;
+                        case "timestamp": timestamp = in.nextString(); break;
+                        case "message": message = in.nextString(); break;
+                        default: in.skipValue(); break;
+                    }
+                }
+                in.endObject();
+                return new ApiResponse<>(data, status, timestamp, message);
+            }
+        };
+    }
+}
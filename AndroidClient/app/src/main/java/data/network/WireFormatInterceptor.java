@@ -0,0 +1,46 @@
+package com.example.weatherforecast.data.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Согласование формата ответа через заголовок Accept.
+ *
+ * Когда двоичный формат включён, клиент предпочитает MessagePack, но допускает JSON,
+ * поэтому сервер без поддержки MessagePack продолжает работать как раньше.
+ */
+public class WireFormatInterceptor implements Interceptor {
+    private static final String ACCEPT_BINARY =
+            MessagePackConverterFactory.MEDIA_TYPE + ", application/json;q=0.5";
+
+    private volatile boolean binaryEnabled;
+
+    public WireFormatInterceptor(boolean binaryEnabled) {
+        this.binaryEnabled = binaryEnabled;
+    }
+
+    public void setBinaryEnabled(boolean enabled) {
+        this.binaryEnabled = enabled;
+    }
+
+    public boolean isBinaryEnabled() {
+        return binaryEnabled;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!binaryEnabled || request.header("Accept") != null) {
+            return chain.proceed(request);
+        }
+        return chain.proceed(request.newBuilder()
+                .header("Accept", ACCEPT_BINARY)
+                .build());
+    }
+}
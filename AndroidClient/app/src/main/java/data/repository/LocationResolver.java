@@ -0,0 +1,96 @@
+package com.example.weatherforecast.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.weatherforecast.data.cache.NegativeCache;
+import com.example.weatherforecast.data.location.LocationIndex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Превращает позицию устройства в точку запроса и решает, нужен ли запрос вообще.
+ *
+ * Позиция привязывается к ближайшей точке каталога не дальше maxDistanceKm. Пока каталога
+ * нет, она уходит на сервер как есть, а его отказы помнит {@link NegativeCache} по точным
+ * координатам. С каталогом позиция дальше maxDistanceKm от всех его точек заведомо вне
+ * покрытия и отклоняется без запроса: каждый новый GPS-фикс немного отличается от прежнего,
+ * и кэш отказов по точным координатам на нём бы не сработал.
+ */
+public class LocationResolver {
+    // Так сервер отвечает на точку вне покрытия
+    public static final int OUT_OF_COVERAGE = 404;
+
+    private final double maxDistanceKm;
+    private final NegativeCache negativeCache;
+    // Заменяется целиком при загрузке каталога
+    private volatile LocationIndex index = LocationIndex.EMPTY;
+    private final AtomicLong outOfCatalog = new AtomicLong();
+
+    /**
+     * Точка запроса и код отказа без обращения к серверу (0 - запрос нужен)
+     */
+    public static final class Resolution {
+        public final double lat;
+        public final double lon;
+        public final int rejectedCode;
+        // true - отказ по каталогу, false - по кэшу отказов сервера
+        public final boolean outsideCatalog;
+
+        Resolution(double lat, double lon, int rejectedCode, boolean outsideCatalog) {
+            this.lat = lat;
+            this.lon = lon;
+            this.rejectedCode = rejectedCode;
+            this.outsideCatalog = outsideCatalog;
+        }
+    }
+
+    public LocationResolver(double maxDistanceKm, @NonNull NegativeCache negativeCache) {
+        this.maxDistanceKm = maxDistanceKm;
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Ставит новый каталог. Прежние отказы относятся к прежним координатам и сбрасываются
+     */
+    public void install(@NonNull LocationIndex newIndex) {
+        index = newIndex;
+        negativeCache.clear();
+    }
+
+    /**
+     * Ближайшая точка каталога {lat, lon} или исходные координаты, если рядом её нет
+     */
+    @NonNull
+    public double[] snap(double lat, double lon) {
+        LocationIndex current = index;
+        int station = current.nearest(lat, lon, maxDistanceKm);
+        return new double[]{current.latitude(station, lat), current.longitude(station, lon)};
+    }
+
+    @NonNull
+    public Resolution resolve(double fixLat, double fixLon) {
+        LocationIndex current = index;
+        int station = current.nearest(fixLat, fixLon, maxDistanceKm);
+        if (station < 0 && current.size() > 0) {
+            outOfCatalog.incrementAndGet();
+            return new Resolution(fixLat, fixLon, OUT_OF_COVERAGE, true);
+        }
+        double lat = current.latitude(station, fixLat);
+        double lon = current.longitude(station, fixLon);
+        return new Resolution(lat, lon, negativeCache.get(lat, lon), false);
+    }
+
+    /**
+     * Сколько точек в загруженном каталоге; 0 - каталога ещё нет
+     */
+    public int getCatalogSize() {
+        return index.size();
+    }
+
+    /**
+     * Сколько позиций отклонено по каталогу без запроса
+     */
+    public long getOutOfCatalogCount() {
+        return outOfCatalog.get();
+    }
+}
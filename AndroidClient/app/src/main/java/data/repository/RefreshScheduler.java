@@ -0,0 +1,110 @@
+package com.example.weatherforecast.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Фоновые обновления погоды со случайным разбросом по времени.
+ *
+ * Периодическое обновление идёт через period +-JITTER, а не ровно по таймеру, поэтому
+ * устройства, запущенные одновременно, со временем расходятся. Пробуждение (восстановление
+ * сети, push) запускает обновление через случайное время от нуля до WAKE_UP_SPREAD: если
+ * тысячи устройств проснулись вместе, сервер получает их запросы равномерно, а не одним пиком.
+ * Задача выполняется в главном потоке.
+ */
+public class RefreshScheduler {
+    private static final double JITTER = 0.2;
+    private static final long WAKE_UP_SPREAD_MILLIS = 30_000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable task;
+    private final long periodMillis;
+
+    private boolean running;
+    private boolean wakeUpPending;
+
+    private final Runnable periodic = new Runnable() {
+        @Override
+        public void run() {
+            task.run();
+            handler.postDelayed(this, nextPeriod());
+        }
+    };
+
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+            wakeUpPending = false;
+            task.run();
+            // Следующее периодическое обновление отсчитывается от этого
+            if (running) {
+                handler.removeCallbacks(periodic);
+                handler.postDelayed(periodic, nextPeriod());
+            }
+        }
+    };
+
+    public RefreshScheduler(@NonNull Runnable task, long periodMillis) {
+        this.task = task;
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * Включает периодические обновления; первое - через период с разбросом, не сразу
+     */
+    public void start() {
+        handler.post(() -> {
+            if (running) return;
+            running = true;
+            handler.postDelayed(periodic, nextPeriod());
+        });
+    }
+
+    /**
+     * Останавливает периодические и отложенные обновления
+     */
+    public void stop() {
+        handler.post(() -> {
+            running = false;
+            wakeUpPending = false;
+            handler.removeCallbacks(periodic);
+            handler.removeCallbacks(wakeUp);
+        });
+    }
+
+    /**
+     * Обновление после события, которое будит много устройств сразу.
+     * Можно вызывать из любого потока; повторные вызовы до выполнения не суммируются
+     */
+    public void wakeUp() {
+        handler.post(() -> {
+            if (!running || wakeUpPending) return;
+            wakeUpPending = true;
+            handler.postDelayed(wakeUp, wakeUpDelay(ThreadLocalRandom.current()));
+        });
+    }
+
+    private long nextPeriod() {
+        return jitteredPeriod(periodMillis, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Период с разбросом: равномерно в [period * (1 - JITTER), period * (1 + JITTER)]
+     */
+    static long jitteredPeriod(long periodMillis, Random random) {
+        double factor = 1 - JITTER + 2 * JITTER * random.nextDouble();
+        return (long) (periodMillis * factor);
+    }
+
+    /**
+     * Пауза перед обновлением после пробуждения: равномерно в [0, WAKE_UP_SPREAD]
+     */
+    static long wakeUpDelay(Random random) {
+        return (long) (random.nextDouble() * (WAKE_UP_SPREAD_MILLIS + 1));
+    }
+}
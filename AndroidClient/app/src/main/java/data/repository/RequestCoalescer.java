@@ -0,0 +1,143 @@
+package com.example.weatherforecast.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.weatherforecast.error.ErrorState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit2.Call;
+
+/**
+ * Объединение одинаковых запросов (single-flight).
+ *
+ * Первый вызывающий по ключу становится ведущим и выполняет запрос, остальные
+ * присоединяются к нему и получают тот же результат. Если все ожидающие ушли
+ * (см. {@link RequestHandle}), сетевой запрос отменяется.
+ */
+public class RequestCoalescer {
+    private final Map<String, List<WeatherRepository.WeatherCallback<?>>> inFlight = new HashMap<>();
+    private final Map<String, Call<?>> calls = new HashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+
+    /**
+     * Новый отменяемый запрос потребителя для ячейки cellKey
+     */
+    @NonNull
+    public RequestHandle newHandle(long cellKey) {
+        return new RequestHandle(this, cellKey);
+    }
+
+    /**
+     * Регистрирует ожидающего. Возвращает true, если запрос нужно отправить
+     */
+    public synchronized <T> boolean join(@NonNull String key,
+                                         @NonNull WeatherRepository.WeatherCallback<T> callback) {
+        List<WeatherRepository.WeatherCallback<?>> waiters = inFlight.get(key);
+        if (waiters != null) {
+            waiters.add(callback);
+            coalesced.incrementAndGet();
+            return false;
+        }
+
+        waiters = new ArrayList<>();
+        waiters.add(callback);
+        inFlight.put(key, waiters);
+        started.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Связывает сетевой запрос с ключом, чтобы его можно было отменить.
+     * Если ожидающих уже нет, запрос отменяется сразу
+     */
+    public void attach(@NonNull String key, @NonNull Call<?> call) {
+        synchronized (this) {
+            if (inFlight.containsKey(key)) {
+                calls.put(key, call);
+                return;
+            }
+        }
+        cancel(call);
+    }
+
+    /**
+     * Отсоединяет ожидающего. Если он был последним, сетевой запрос отменяется;
+     * его onFailure после этого нужно игнорировать (call.isCanceled())
+     */
+    public void leave(@NonNull String key, @NonNull WeatherRepository.WeatherCallback<?> callback) {
+        Call<?> abandoned = null;
+        synchronized (this) {
+            List<WeatherRepository.WeatherCallback<?>> waiters = inFlight.get(key);
+            if (waiters == null) return;
+            // Сравнение по ссылке: один и тот же коллбэк мог присоединиться дважды
+            for (int i = 0; i < waiters.size(); i++) {
+                if (waiters.get(i) == callback) {
+                    waiters.remove(i);
+                    break;
+                }
+            }
+            if (waiters.isEmpty()) {
+                inFlight.remove(key);
+                abandoned = calls.remove(key);
+            }
+        }
+        if (abandoned != null) {
+            cancel(abandoned);
+        }
+    }
+
+    private void cancel(@NonNull Call<?> call) {
+        if (!call.isCanceled()) {
+            call.cancel();
+            cancelled.incrementAndGet();
+        }
+    }
+
+    void recordIgnored() {
+        ignored.incrementAndGet();
+    }
+
+    /**
+     * Раздаёт успешный результат всем ожидающим
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void complete(@NonNull String key, T data) {
+        for (WeatherRepository.WeatherCallback<?> waiter : drain(key)) {
+            ((WeatherRepository.WeatherCallback<T>) waiter).onSuccess(data);
+        }
+    }
+
+    /**
+     * Раздаёт ошибку всем ожидающим
+     */
+    public void fail(@NonNull String key, @NonNull ErrorState error) {
+        for (WeatherRepository.WeatherCallback<?> waiter : drain(key)) {
+            waiter.onError(error);
+        }
+    }
+
+    public synchronized boolean isInFlight(@NonNull String key) {
+        return inFlight.containsKey(key);
+    }
+
+    // Коллбэки вызываются вне блокировки, чтобы они могли начать новый запрос
+    @NonNull
+    private synchronized List<WeatherRepository.WeatherCallback<?>> drain(@NonNull String key) {
+        calls.remove(key);
+        List<WeatherRepository.WeatherCallback<?>> waiters = inFlight.remove(key);
+        return waiters != null ? waiters : new ArrayList<>();
+    }
+
+    public long getStartedCount() { return started.get(); }
+    public long getCoalescedCount() { return coalesced.get(); }
+    public long getCancelledCount() { return cancelled.get(); }
+    public long getIgnoredCount() { return ignored.get(); }
+}
@@ -0,0 +1,128 @@
+package com.example.weatherforecast.data.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.weatherforecast.error.ErrorState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запрос одного потребителя (экрана, LiveData), который можно отменить.
+ *
+ * Когда потребитель запрашивает данные для новой точки, прежний запрос отменяется:
+ * его коллбэки отсоединяются от запросов в полёте (сетевой Call отменяется, если
+ * больше никто его не ждёт), а результаты, которые всё же придут, отбрасываются.
+ * Повторный запрос той же ячейки прежний сетевой запрос не отменяет (см. {@link #supersede}).
+ */
+public class RequestHandle {
+    private final RequestCoalescer coalescer;
+    private final long cellKey;
+    private final List<String> flightKeys = new ArrayList<>();
+    private final List<WeatherRepository.WeatherCallback<?>> waiters = new ArrayList<>();
+    private boolean cancelled;
+
+    RequestHandle(@NonNull RequestCoalescer coalescer, long cellKey) {
+        this.coalescer = coalescer;
+        this.cellKey = cellKey;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Отменяет запрос. Повторный вызов ничего не делает
+     */
+    public void cancel() {
+        List<String> keys;
+        List<WeatherRepository.WeatherCallback<?>> callbacks;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            keys = new ArrayList<>(flightKeys);
+            callbacks = new ArrayList<>(waiters);
+            flightKeys.clear();
+            waiters.clear();
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            coalescer.leave(keys.get(i), callbacks.get(i));
+        }
+    }
+
+    /**
+     * Заменяет прежний запрос потребителя этим; его результаты больше не доставляются.
+     * Для другой ячейки прежний запрос отменяется. Для той же ячейки его ожидания переходят
+     * к этому запросу, а не покидают полёт: иначе сетевой запрос отменился бы и новая
+     * загрузка отправила бы такой же. Ожидания уходят из полёта при отмене этого запроса
+     */
+    public void supersede(@Nullable RequestHandle previous) {
+        if (previous == null || previous == this) return;
+        if (previous.cellKey != cellKey) {
+            previous.cancel();
+            return;
+        }
+        List<String> keys;
+        List<WeatherRepository.WeatherCallback<?>> callbacks;
+        synchronized (previous) {
+            if (previous.cancelled) return;
+            previous.cancelled = true;
+            keys = new ArrayList<>(previous.flightKeys);
+            callbacks = new ArrayList<>(previous.waiters);
+            previous.flightKeys.clear();
+            previous.waiters.clear();
+        }
+        synchronized (this) {
+            if (!cancelled) {
+                flightKeys.addAll(keys);
+                waiters.addAll(callbacks);
+                return;
+            }
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            coalescer.leave(keys.get(i), callbacks.get(i));
+        }
+    }
+
+    /**
+     * Запоминает, что callback ждёт запрос flightKey.
+     * Если запрос уже отменён, сразу отсоединяет его
+     */
+    void track(@NonNull String flightKey, @NonNull WeatherRepository.WeatherCallback<?> callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                flightKeys.add(flightKey);
+                waiters.add(callback);
+                return;
+            }
+        }
+        coalescer.leave(flightKey, callback);
+    }
+
+    /**
+     * Коллбэк, который молча отбрасывает результаты после отмены
+     */
+    @NonNull
+    <T> WeatherRepository.WeatherCallback<T> guard(@NonNull WeatherRepository.WeatherCallback<T> callback) {
+        return new WeatherRepository.WeatherCallback<T>() {
+            @Override
+            public void onSuccess(T data) {
+                if (isCancelled()) {
+                    coalescer.recordIgnored();
+                    return;
+                }
+                callback.onSuccess(data);
+            }
+
+            @Override
+            public void onError(ErrorState errorState) {
+                if (isCancelled()) {
+                    coalescer.recordIgnored();
+                    return;
+                }
+                callback.onError(errorState);
+            }
+        };
+    }
+}
@@ -1,24 +1,65 @@
 package com.example.weatherforecast.data.repository;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.weatherforecast.data.api.WeatherApi;
+import com.example.weatherforecast.data.cache.DiskCache;
+import com.example.weatherforecast.data.cache.LocationQuantizer;
+import com.example.weatherforecast.data.cache.NegativeCache;
+import com.example.weatherforecast.data.cache.WeatherCache;
+import com.example.weatherforecast.data.location.LocationIndex;
 import com.example.weatherforecast.data.model.ApiResponse;
+import com.example.weatherforecast.data.model.BatchWeather;
 import com.example.weatherforecast.data.model.CurrentWeather;
 import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.data.model.ForecastDelta;
+import com.example.weatherforecast.data.model.LocationCatalog;
+import com.example.weatherforecast.data.network.AdaptiveTimeoutInterceptor;
+import com.example.weatherforecast.data.network.CircuitBreaker;
+import com.example.weatherforecast.data.network.ConnectionStatsListener;
+import com.example.weatherforecast.data.network.MessagePackConverterFactory;
+import com.example.weatherforecast.data.network.Deadline;
+import com.example.weatherforecast.data.network.EndpointPool;
+import com.example.weatherforecast.data.network.HedgingPolicy;
+import com.example.weatherforecast.data.network.LiveWeatherStream;
+import com.example.weatherforecast.data.network.PriorityDispatcher;
+import com.example.weatherforecast.data.network.RateLimiter;
+import com.example.weatherforecast.data.network.RequestPriority;
+import com.example.weatherforecast.data.network.ResponseStatsInterceptor;
+import com.example.weatherforecast.data.network.RetrofitClient;
+import com.example.weatherforecast.data.network.RetryInterceptor;
+import com.example.weatherforecast.data.network.StreamingJsonConverterFactory;
+import com.example.weatherforecast.data.network.WeatherTypeAdapters;
+import com.example.weatherforecast.data.network.WireFormatInterceptor;
 import com.example.weatherforecast.error.ErrorHandler;
 import com.example.weatherforecast.error.ErrorState;
 import com.example.weatherforecast.error.ErrorType;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.SocketTimeoutException;
-import java.net.UnknownHostException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -28,18 +69,126 @@ import retrofit2.converter.gson.GsonConverterFactory;
 
 public class WeatherRepository {
     private static final String TAG = "WeatherRepository";
+    
+    // Параметры кэша: текущая погода устаревает быстрее прогноза
+    private static final int CACHE_MAX_ENTRIES = 32;
+    private static final long CURRENT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long FORECAST_TTL_MS = TimeUnit.HOURS.toMillis(1);
+    // Сколько ещё после TTL устаревшие данные можно показывать, пока идёт обновление
+    private static final long CURRENT_MAX_STALE_MS = TimeUnit.MINUTES.toMillis(50);
+    private static final long FORECAST_MAX_STALE_MS = TimeUnit.HOURS.toMillis(11);
+    // Ячейка сетки ~1 км: дрожание GPS на несколько метров не создаёт новую запись
+    private static final double CACHE_CELL_DEGREES = 0.01;
+    // Отказы сервера (точка вне покрытия, неверные координаты) помним меньше, чем данные:
+    // покрытие может расшириться
+    private static final int NEGATIVE_CACHE_MAX_ENTRIES = 64;
+    private static final long NEGATIVE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    // Фильтр Блума перед кэшем отказов: обычные точки отсеиваются без поиска в таблице
+    private static final boolean NEGATIVE_CACHE_BLOOM_FILTER = true;
+    
+    // Сервер отвечает только для точек своего каталога. Позиция привязывается к ближайшей
+    // из них, если та не дальше этого расстояния; иначе она вне покрытия (см. LocationResolver)
+    private static final double SNAP_MAX_DISTANCE_KM = 50;
+    private static final String CATALOG_NAMESPACE = "locations";
+    private static final String CATALOG_KEY = "catalog";
+    // Каталог меняется редко; при запуске он всё равно перепроверяется условным запросом
+    private static final long CATALOG_MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+    // Каталог - сотни тысяч точек: загрузка дольше срока обычного запроса погоды
+    private static final long CATALOG_CALL_TIMEOUT_SECONDS = 60;
+    // Как часто проверять, не пора ли загрузить каталог; после сбоя это пауза до повтора
+    private static final long CATALOG_CHECK_PERIOD_MS = TimeUnit.MINUTES.toMillis(15);
+    // Полученный из сети каталог перепроверяется раз в сутки
+    private static final long CATALOG_REFRESH_MS = TimeUnit.HOURS.toMillis(24);
+    
+    // Данные с диска показываем сразу при холодном старте, пока идёт обновление из сети
+    private static final String DISK_CACHE_DIR = "weather_cache";
+    
+    private static final String BATCH_INCLUDE_ALL = "current,forecast";
+    // Как MAX_BATCH_LOCATIONS в Server/app.py: больше точек сервер отвергает целиком
+    private static final int BATCH_MAX_LOCATIONS = 50;
+    
+    // HTTP-кэш OkHttp: хранит ответы с ETag/Last-Modified для условных запросов
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 5L * 1024 * 1024;
+    
+    // Один хост; по HTTP/1.1 параллельно идут максимум текущая погода и прогноз,
+    // по HTTP/2 хватает одного соединения. Держим их дольше интервала обновления на экране
+    private static final int POOL_MAX_IDLE_CONNECTIONS = 2;
+    private static final long POOL_KEEP_ALIVE_MINUTES = 5;
+    // Копия запроса текущей погоды уходит, если он дольше 95% недавних
+    private static final double HEDGE_PERCENTILE = 0.95;
+    // Срок одной операции целиком: кэш, сеть с повторами и разбор ответа.
+    // Не уложились - отдаём лучшее, что есть в кэше
+    private static final long OPERATION_DEADLINE_MILLIS = 10_000;
+    
     private static WeatherRepository instance;
     
     private final WeatherApi weatherApi;
     private final ErrorHandler errorHandler;
+    private final DiskCache diskCache;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+    private final ResponseStatsInterceptor responseStats = new ResponseStatsInterceptor();
+    // MessagePack по умолчанию; если сервер его не поддерживает, он ответит JSON
+    private final WireFormatInterceptor wireFormat = new WireFormatInterceptor(true);
+    // Заодно сообщает PriorityDispatcher об отменах: отменённый запрос сразу уходит из его очереди
+    private final ConnectionStatsListener connectionStats = new ConnectionStatsListener() {
+        @Override
+        public void canceled(okhttp3.Call call) {
+            PriorityDispatcher.getInstance().onCanceled();
+        }
+    };
+    // Пока сервер недоступен, запросы завершаются сразу, а не по таймауту
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    // Повторы GET с экспоненциальной паузой и общим бюджетом
+    private final RetryInterceptor retryInterceptor = new RetryInterceptor();
+    // Растягивает всплески запросов со многих устройств и соблюдает Retry-After
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private final HedgingPolicy currentHedging = new HedgingPolicy(HEDGE_PERCENTILE);
+    private final AdaptiveTimeoutInterceptor adaptiveTimeouts = new AdaptiveTimeoutInterceptor();
+    // Запросы погоды распределяются между репликами сервера
+    private final EndpointPool endpointPool = new EndpointPool(Arrays.asList(RetrofitClient.WEATHER_SERVERS));
     
     private final MutableLiveData<CurrentWeather> currentWeatherData = new MutableLiveData<>();
     private final MutableLiveData<ForecastData> forecastData = new MutableLiveData<>();
     private final MutableLiveData<ErrorState> errorState = new MutableLiveData<>();
     private final MutableLiveData<String> simpleErrorMessage = new MutableLiveData<>();
+    private final MutableLiveData<CircuitBreaker.State> circuitState =
+            new MutableLiveData<>(CircuitBreaker.State.CLOSED);
+    
+    private final LocationQuantizer locationQuantizer = new LocationQuantizer(CACHE_CELL_DEGREES);
+    private final WeatherCache<CurrentWeather> currentCache =
+            new WeatherCache<>(CACHE_MAX_ENTRIES, CURRENT_TTL_MS, CURRENT_MAX_STALE_MS);
+    private final WeatherCache<ForecastData> forecastCache =
+            new WeatherCache<>(CACHE_MAX_ENTRIES, FORECAST_TTL_MS, FORECAST_MAX_STALE_MS);
+    private final NegativeCache negativeCache =
+            new NegativeCache(NEGATIVE_CACHE_MAX_ENTRIES, NEGATIVE_TTL_MS, NEGATIVE_CACHE_BLOOM_FILTER);
+    // Привязка позиций к каталогу поддерживаемых точек и отказы без запроса
+    private final LocationResolver locationResolver =
+            new LocationResolver(SNAP_MAX_DISTANCE_KM, negativeCache);
+    // Когда каталог последний раз получен из сети; 0 - ещё ни разу
+    private volatile long catalogFetchedAt;
+    private final AtomicBoolean catalogFetchInFlight = new AtomicBoolean();
+    private final RefreshScheduler catalogRefresh =
+            new RefreshScheduler(this::refreshLocationCatalogIfDue, CATALOG_CHECK_PERIOD_MS);
+    
+    private volatile boolean staleWhileRevalidate = true;
+    private volatile boolean hedgingEnabled = true;
+    private volatile boolean http2PriorKnowledge;
+    // Последние запросы в общие LiveData; новый запрос отменяет прежний (только главный поток)
+    private RequestHandle currentLiveDataRequest;
+    private RequestHandle forecastLiveDataRequest;
+    private final AtomicLong forecastDeltaCount = new AtomicLong();
+    private final AtomicLong liveUpdateCount = new AtomicLong();
+    
+    // Живые обновления текущей погоды от сервера
+    private final LiveWeatherStream liveStream;
+    // Точка, обновления которой публикуются в LiveData текущей погоды (только главный поток)
+    private double[] liveDataLocation;
     
-    private final Map<String, CurrentWeather> currentCache = new HashMap<>();
-    private final Map<String, ForecastData> forecastCache = new HashMap<>();
+    private final WeatherSource<CurrentWeather> currentSource;
+    private final WeatherSource<ForecastData> forecastSource;
     
     // Интерфейсы для коллбэков
     public interface WeatherCallback<T> {
@@ -52,41 +201,216 @@ public class WeatherRepository {
         void onError(String errorMessage);
     }
     
+    private interface ApiCallFactory<T> {
+        Call<ApiResponse<T>> create(double lat, double lon);
+    }
+    
+    /**
+     * Фоновое обновление, которое умеет использовать уже имеющееся значение
+     */
+    private interface Revalidator<T> {
+        void revalidate(double lat, double lon, long cacheKey, T stale, WeatherCallback<T> callback,
+                        RequestHandle handle, Deadline deadline);
+    }
+    
+    /**
+     * Описание одного эндпоинта: кэши, тип модели и способ создать запрос
+     */
+    private static final class WeatherSource<T> {
+        final String endpoint;
+        final Class<T> type;
+        final WeatherCache<T> memoryCache;
+        final ApiCallFactory<T> apiCall;
+        final boolean isCritical;
+        // null - обновление всегда полным запросом
+        final Revalidator<T> revalidator;
+        // null - медленные запросы не дублируются
+        final HedgingPolicy hedging;
+        
+        WeatherSource(String endpoint, Class<T> type, WeatherCache<T> memoryCache,
+                      ApiCallFactory<T> apiCall, boolean isCritical, Revalidator<T> revalidator,
+                      HedgingPolicy hedging) {
+            this.endpoint = endpoint;
+            this.type = type;
+            this.memoryCache = memoryCache;
+            this.apiCall = apiCall;
+            this.isCritical = isCritical;
+            this.revalidator = revalidator;
+            this.hedging = hedging;
+        }
+    }
+    
     private WeatherRepository(android.content.Context context) {
         this.errorHandler = new ErrorHandler(context);
         
+        // Модели погоды читаются потоковыми адаптерами без рефлексии
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(WeatherTypeAdapters.FACTORY)
+                .create();
+        this.diskCache = new DiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR), gson);
+        
         // Логирование запросов (для debug)
         HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
         logging.setLevel(HttpLoggingInterceptor.Level.BODY);
         
-        // OkHttp с улучшенными таймаутами и перехватчиками
-        OkHttpClient client = new OkHttpClient.Builder()
+        // OkHttp с улучшенными таймаутами и перехватчиками.
+        // Сервер отдаёт ETag и Cache-Control: no-cache, поэтому OkHttp хранит ответ
+        // и перепроверяет его условным запросом; неизменённые данные приходят как 304 без тела
+        circuitBreaker.setListener((from, to) -> {
+            android.util.Log.w(TAG, "Circuit breaker " + from + " -> " + to);
+            circuitState.postValue(to);
+        });
+        
+        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
+                .cache(new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE))
+                .connectionPool(new ConnectionPool(POOL_MAX_IDLE_CONNECTIONS,
+                        POOL_KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .eventListener(connectionStats)
+                .addInterceptor(retryInterceptor)
+                .addInterceptor(rateLimiter)
+                .addInterceptor(circuitBreaker)
+                // Порядок запросов определяет PriorityDispatcher: интерактивные раньше фоновых и логов
+                .dispatcher(PriorityDispatcher.newOkHttpDispatcher())
+                .addInterceptor(PriorityDispatcher.getInstance())
+                .addInterceptor(endpointPool)
+                // Таймауты попытки подстраиваются под задержки эндпоинта; эти значения - верхняя граница
+                .addInterceptor(adaptiveTimeouts)
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
+                // Запросы без своего срока (Deadline) всё равно не дольше срока операции
+                .callTimeout(OPERATION_DEADLINE_MILLIS, TimeUnit.MILLISECONDS)
+                .addInterceptor(wireFormat)
                 .addInterceptor(logging)
-                .addInterceptor(chain -> {
-                    // Добавляем заголовки или логику повторных попыток
-                    try {
-                        return chain.proceed(chain.request());
-                    } catch (SocketTimeoutException e) {
-                        android.util.Log.e(TAG, "Socket timeout", e);
-                        throw e;
-                    } catch (UnknownHostException e) {
-                        android.util.Log.e(TAG, "No internet connection", e);
-                        throw e;
-                    }
-                })
+                .addNetworkInterceptor(responseStats);
+        OkHttpClient client = clientBuilder.build();
+        // Тот же клиент (пул, диспетчер, кэш, перехватчики), но только h2c prior knowledge.
+        // Пул различает соединения по протоколам, поэтому HTTP/1.1 и HTTP/2 не смешиваются
+        OkHttpClient h2cClient = client.newBuilder()
+                .protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
                 .build();
         
-        // Retrofit
+        // Retrofit; клиент выбирается на каждый вызов, см. setHttp2PriorKnowledge
         Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl("http://10.0.2.2:5000/")  // Для эмулятора
-                .addConverterFactory(GsonConverterFactory.create())
+                .baseUrl(RetrofitClient.BASE_URL)
+                .callFactory(request -> (http2PriorKnowledge ? h2cClient : client).newCall(request))
+                .addConverterFactory(MessagePackConverterFactory.create(gson))
+                .addConverterFactory(StreamingJsonConverterFactory.create(gson))
+                .addConverterFactory(GsonConverterFactory.create(gson))
                 .client(client)
                 .build();
         
         weatherApi = retrofit.create(WeatherApi.class);
+        
+        // Текущая погода маленькая и нужна сразу: её медленные запросы дублируются
+        currentSource = new WeatherSource<>("current_weather", CurrentWeather.class,
+                currentCache, weatherApi::getCurrentWeather, true, null, currentHedging);
+        // Прогноз не критичен; при обновлении скачиваются только изменившиеся дни
+        forecastSource = new WeatherSource<>("forecast", ForecastData.class,
+                forecastCache, weatherApi::getForecast, false, this::revalidateForecast, null);
+        
+        liveStream = new LiveWeatherStream(client, gson, new LiveWeatherStream.Listener() {
+            @Override
+            public void onCurrentWeather(double lat, double lon, CurrentWeather weather) {
+                mainHandler.post(() -> applyLiveUpdate(lat, lon, weather));
+            }
+            
+            @Override
+            public void onInvalidate(double lat, double lon) {
+                mainHandler.post(() -> applyLiveInvalidate(lat, lon));
+            }
+        });
+        
+        prewarmConnection(client);
+        refreshLocationCatalog();
+        catalogRefresh.start();
+    }
+    
+    /**
+     * Загружает каталог поддерживаемых точек: сразу с диска, затем из сети.
+     * Пока каталога нет, координаты уходят на сервер как есть. Если сети нет или запрос
+     * не удался, его повторяет catalogRefresh, пока каталог не будет получен
+     */
+    public void refreshLocationCatalog() {
+        // Однопоточный ioExecutor: каталог из сети всегда ставится после дискового
+        ioExecutor.execute(() -> {
+            LocationCatalog persisted = diskCache.read(CATALOG_NAMESPACE, CATALOG_KEY,
+                    LocationCatalog.class, CATALOG_MAX_AGE_MS);
+            if (persisted != null) {
+                installLocationCatalog(persisted);
+            }
+        });
+        fetchLocationCatalog();
+    }
+    
+    // Вызывается RefreshScheduler: повтор после сбоя и ежедневная перепроверка
+    private void refreshLocationCatalogIfDue() {
+        if (System.currentTimeMillis() - catalogFetchedAt < CATALOG_REFRESH_MS) return;
+        fetchLocationCatalog();
+    }
+    
+    private void fetchLocationCatalog() {
+        if (!errorHandler.isNetworkAvailable()) return;
+        if (!catalogFetchInFlight.compareAndSet(false, true)) return;
+        
+        Call<ApiResponse<LocationCatalog>> catalogCall = weatherApi.getLocationCatalog();
+        // Вместо срока клиента (OPERATION_DEADLINE_MILLIS), рассчитанного на погоду
+        catalogCall.timeout().timeout(CATALOG_CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        catalogCall.enqueue(new Callback<ApiResponse<LocationCatalog>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<LocationCatalog>> call,
+                                   Response<ApiResponse<LocationCatalog>> response) {
+                catalogFetchInFlight.set(false);
+                ApiResponse<LocationCatalog> body = response.body();
+                if (!response.isSuccessful() || body == null || !body.isSuccess() || body.getData() == null) {
+                    android.util.Log.w(TAG, "Location catalog request failed: HTTP " + response.code());
+                    return;
+                }
+                catalogFetchedAt = System.currentTimeMillis();
+                LocationCatalog catalog = body.getData();
+                // Индекс по сотням тысяч точек строится десятки миллисекунд - не в главном потоке
+                ioExecutor.execute(() -> {
+                    installLocationCatalog(catalog);
+                    diskCache.writeAsync(CATALOG_NAMESPACE, CATALOG_KEY, catalog);
+                });
+            }
+            
+            @Override
+            public void onFailure(Call<ApiResponse<LocationCatalog>> call, Throwable t) {
+                catalogFetchInFlight.set(false);
+                android.util.Log.w(TAG, "Location catalog request failed: " + t.getMessage());
+            }
+        });
+    }
+    
+    private void installLocationCatalog(LocationCatalog catalog) {
+        locationResolver.install(new LocationIndex(catalog.getLats(), catalog.getLons()));
+        android.util.Log.d(TAG, "Location catalog: " + catalog.size() + " points");
+    }
+    
+    /**
+     * Открывает соединение с сервером заранее, пока приложение запускается,
+     * чтобы первый запрос погоды не ждал установки TCP. Ответ не нужен
+     */
+    private void prewarmConnection(OkHttpClient client) {
+        if (!errorHandler.isNetworkAvailable()) return;
+        
+        Request request = new Request.Builder()
+                .url(RetrofitClient.BASE_URL + "status")
+                .header(RequestPriority.HEADER, RequestPriority.PREFETCH.name())
+                .head()
+                .build();
+        client.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                response.close();
+            }
+            
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                android.util.Log.d(TAG, "Connection pre-warm failed: " + e.getMessage());
+            }
+        });
     }
     
     // Singleton pattern
@@ -116,268 +440,787 @@ public class WeatherRepository {
      * Получение текущей погоды с использованием LiveData (старый интерфейс)
      */
     public LiveData<CurrentWeather> getCurrentWeather(double lat, double lon) {
-        // Проверяем кэш
-        String cacheKey = lat + "," + lon;
+        // Ответ для прежней точки не должен перезаписать LiveData
+        RequestHandle handle = supersede(currentLiveDataRequest, lat, lon);
+        currentLiveDataRequest = handle;
+        load(currentSource, lat, lon, handle.guard(liveDataCallback(currentWeatherData)), true, handle);
+        return currentWeatherData;
+    }
+    
+    /**
+     * Получение прогноза с использованием LiveData (старый интерфейс)
+     */
+    public LiveData<ForecastData> getForecast(double lat, double lon) {
+        RequestHandle handle = supersede(forecastLiveDataRequest, lat, lon);
+        forecastLiveDataRequest = handle;
+        load(forecastSource, lat, lon, handle.guard(liveDataCallback(forecastData)), true, handle);
+        return forecastData;
+    }
+    
+    private RequestHandle supersede(RequestHandle previous, double lat, double lon) {
+        RequestHandle handle = requestCoalescer.newHandle(cellKeyFor(lat, lon));
+        handle.supersede(previous);
+        return handle;
+    }
+    
+    // Ячейка кэша, в которую попадёт загрузка для этой позиции (после привязки к каталогу)
+    private long cellKeyFor(double lat, double lon) {
+        double[] snapped = locationResolver.snap(lat, lon);
+        return locationQuantizer.key(snapped[0], snapped[1]);
+    }
+    
+    /**
+     * НОВЫЙ: Получение текущей погоды через коллбэк с обработкой ошибок
+     */
+    public void getCurrentWeather(double lat, double lon, WeatherCallback<CurrentWeather> callback) {
+        load(currentSource, lat, lon, callback, false, null);
+    }
+    
+    /**
+     * НОВЫЙ: Получение прогноза через коллбэк с обработкой ошибок
+     */
+    public void getForecast(double lat, double lon, WeatherCallback<ForecastData> callback) {
+        load(forecastSource, lat, lon, callback, false, null);
+    }
+    
+    /**
+     * Лёгкий опрос текущей погоды: сервер присылает только поля fields.
+     * Если для точки уже есть запись в кэше, проекция вливается в неё и остальные поля
+     * сохраняются; срок жизни записи при этом не продлевается. Без записи в кэше
+     * коллбэк получает только запрошенные поля, остальные имеют значения по умолчанию.
+     */
+    public void getCurrentWeather(double fixLat, double fixLon, Set<CurrentWeather.Field> fields,
+                                  WeatherCallback<CurrentWeather> callback) {
+        if (fields.isEmpty()) {
+            getCurrentWeather(fixLat, fixLon, callback);
+            return;
+        }
+        
+        LocationResolver.Resolution point = locationResolver.resolve(fixLat, fixLon);
+        double lat = point.lat;
+        double lon = point.lon;
+        
+        // Свежая полная запись покрывает любую проекцию
+        long cacheKey = locationQuantizer.key(lat, lon);
         CurrentWeather cached = currentCache.get(cacheKey);
         if (cached != null) {
-            currentWeatherData.setValue(cached);
-            return currentWeatherData;
+            callback.onSuccess(cached);
+            return;
+        }
+        if (point.rejectedCode != 0) {
+            callback.onError(rejectionError(point, currentSource.endpoint));
+            return;
         }
         
         // Проверяем доступность сети
         if (!errorHandler.isNetworkAvailable()) {
-            ErrorState networkError = errorHandler.handleError(
-                    ErrorType.NETWORK_UNAVAILABLE, 
+            callback.onError(errorHandler.handleError(
+                    ErrorType.NETWORK_UNAVAILABLE,
                     "Please check your internet connection",
-                    true
-            );
-            errorState.setValue(networkError);
-            simpleErrorMessage.setValue(networkError.getMessage());
-            return currentWeatherData;
+                    false
+            ));
+            return;
         }
         
-        weatherApi.getCurrentWeather(lat, lon).enqueue(new Callback<ApiResponse<CurrentWeather>>() {
+        Set<CurrentWeather.Field> projected = EnumSet.copyOf(fields);
+        String projection = projection(projected);
+        String flightKey = currentSource.endpoint + "?fields=" + projection + "|"
+                + LocationQuantizer.toString(cacheKey);
+        if (!requestCoalescer.join(flightKey, callback)) {
+            android.util.Log.d(TAG, "Coalesced " + flightKey);
+            return;
+        }
+        
+        Call<ApiResponse<CurrentWeather>> projectionCall = weatherApi.getCurrentWeather(lat, lon, projection);
+        Deadline.after(OPERATION_DEADLINE_MILLIS).applyTo(projectionCall);
+        projectionCall.enqueue(new Callback<ApiResponse<CurrentWeather>>() {
             @Override
-            public void onResponse(Call<ApiResponse<CurrentWeather>> call, 
-                                  Response<ApiResponse<CurrentWeather>> response) {
+            public void onResponse(Call<ApiResponse<CurrentWeather>> call,
+                                   Response<ApiResponse<CurrentWeather>> response) {
                 
-                android.util.Log.d(TAG, "Запрос current: " + call.request().url());
+                android.util.Log.d(TAG, "Запрос current_weather (" + projection + "): " + call.request().url());
                 
                 if (response.isSuccessful() && response.body() != null) {
                     ApiResponse<CurrentWeather> apiResp = response.body();
-                    if (apiResp.isSuccess()) {
-                        CurrentWeather weather = apiResp.getData();
-                        // Кэшируем результат
-                        currentCache.put(cacheKey, weather);
-                        currentWeatherData.setValue(weather);
-                        // Очищаем ошибки
-                        errorState.setValue(null);
-                        simpleErrorMessage.setValue(null);
+                    if (apiResp.isSuccess() && apiResp.getData() != null) {
+                        CurrentWeather base = currentCache.peek(cacheKey);
+                        CurrentWeather result = apiResp.getData();
+                        if (base != null) {
+                            result = result.mergeInto(base, projected);
+                            currentCache.replace(cacheKey, result);
+                        }
+                        requestCoalescer.complete(flightKey, result);
                     } else {
-                        handleApiError(apiResp.getMessage(), "current_weather", false);
+                        requestCoalescer.fail(flightKey,
+                                handleApiError(apiResp.getMessage(), currentSource.endpoint, false));
                     }
                 } else {
-                    handleHttpError(response.code(), response.message(), "current_weather");
+                    if (isPermanentRejection(response.code())) {
+                        negativeCache.put(lat, lon, response.code());
+                    }
+                    requestCoalescer.fail(flightKey,
+                            handleHttpError(response.code(), response.message(), currentSource.endpoint));
                 }
             }
             
             @Override
             public void onFailure(Call<ApiResponse<CurrentWeather>> call, Throwable t) {
                 android.util.Log.e(TAG, "Сетевая ошибка: " + t.getMessage(), t);
-                handleNetworkError(t, "current_weather");
+                requestCoalescer.fail(flightKey, handleNetworkError(t, currentSource.endpoint));
             }
         });
+    }
+    
+    // Значение параметра fields=, порядок полей фиксирован порядком enum
+    private static String projection(Set<CurrentWeather.Field> fields) {
+        StringBuilder builder = new StringBuilder();
+        for (CurrentWeather.Field field : fields) {
+            if (builder.length() > 0) builder.append(',');
+            builder.append(field.getSerializedName());
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * НОВЫЙ: Совместимость со старым SimpleWeatherCallback
+     */
+    public void getCurrentWeather(double lat, double lon, SimpleWeatherCallback<CurrentWeather> callback) {
+        getCurrentWeather(lat, lon, new WeatherCallback<CurrentWeather>() {
+            @Override
+            public void onSuccess(CurrentWeather data) {
+                callback.onSuccess(data);
+            }
+            
+            @Override
+            public void onError(ErrorState errorState) {
+                callback.onError(errorState.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * НОВЫЙ: Совместимость со старым SimpleWeatherCallback
+     */
+    public void getForecast(double lat, double lon, SimpleWeatherCallback<ForecastData> callback) {
+        getForecast(lat, lon, new WeatherCallback<ForecastData>() {
+            @Override
+            public void onSuccess(ForecastData data) {
+                callback.onSuccess(data);
+            }
+            
+            @Override
+            public void onError(ErrorState errorState) {
+                callback.onError(errorState.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Текущая погода и прогноз одной операцией.
+     * Оба запроса уходят одновременно, коллбэк получает один снимок, когда известны обе части
+     * (данные или ошибка каждой). Если потом придут обновлённые данные (stale-while-revalidate),
+     * коллбэк получит новый снимок.
+     * Через возвращаемый RequestHandle запрос можно отменить, когда он стал не нужен.
+     */
+    public RequestHandle getWeatherSnapshot(double lat, double lon, WeatherCallback<WeatherSnapshot> callback) {
+        RequestHandle handle = requestCoalescer.newHandle(cellKeyFor(lat, lon));
+        SnapshotJoiner joiner = new SnapshotJoiner(lat, lon, handle.guard(callback));
+        load(currentSource, lat, lon, new WeatherCallback<CurrentWeather>() {
+            @Override
+            public void onSuccess(CurrentWeather data) {
+                joiner.onCurrent(data, null);
+            }
+            
+            @Override
+            public void onError(ErrorState error) {
+                joiner.onCurrent(null, error);
+            }
+        }, true, handle);
+        load(forecastSource, lat, lon, new WeatherCallback<ForecastData>() {
+            @Override
+            public void onSuccess(ForecastData data) {
+                joiner.onForecast(data, null);
+            }
+            
+            @Override
+            public void onError(ErrorState error) {
+                joiner.onForecast(null, error);
+            }
+        }, true, handle);
+        return handle;
+    }
+    
+    /**
+     * Собирает результаты двух параллельных запросов в один снимок.
+     * Все коллбэки приходят в главном потоке, поэтому синхронизация не нужна
+     */
+    private static final class SnapshotJoiner {
+        private final double lat;
+        private final double lon;
+        private final WeatherCallback<WeatherSnapshot> callback;
         
-        return currentWeatherData;
+        private boolean currentDone;
+        private boolean forecastDone;
+        private CurrentWeather current;
+        private ForecastData forecast;
+        private ErrorState currentError;
+        private ErrorState forecastError;
+        
+        SnapshotJoiner(double lat, double lon, WeatherCallback<WeatherSnapshot> callback) {
+            this.lat = lat;
+            this.lon = lon;
+            this.callback = callback;
+        }
+        
+        void onCurrent(CurrentWeather data, ErrorState error) {
+            // Ошибка фонового обновления не затирает уже полученные данные
+            if (data != null || current == null) {
+                current = data;
+                currentError = error;
+            }
+            currentDone = true;
+            publish();
+        }
+        
+        void onForecast(ForecastData data, ErrorState error) {
+            if (data != null || forecast == null) {
+                forecast = data;
+                forecastError = error;
+            }
+            forecastDone = true;
+            publish();
+        }
+        
+        private void publish() {
+            if (!currentDone || !forecastDone) return;
+            
+            WeatherSnapshot snapshot = new WeatherSnapshot(lat, lon, current, forecast,
+                    currentError, forecastError);
+            if (snapshot.isFailed()) {
+                // Текущая погода важнее, поэтому её ошибку и отдаём
+                callback.onError(currentError != null ? currentError : forecastError);
+            } else {
+                callback.onSuccess(snapshot);
+            }
+        }
     }
     
     /**
-     * Получение прогноза с использованием LiveData (старый интерфейс)
+     * Общий путь загрузки: память -> диск -> сеть. Запись с диска поднимается в память.
+     * В режиме stale-while-revalidate устаревшие данные (из памяти или с диска) отдаются
+     * сразу, а сеть обновляет кэш в фоне. pushRevalidated определяет, получит ли
+     * коллбэк обновлённое значение; в режиме stale-while-revalidate его получают все.
+     * handle (может быть null) позволяет отменить сетевые запросы этой загрузки.
+     * Вся загрузка укладывается в OPERATION_DEADLINE_MILLIS; по истечении срока коллбэк получает
+     * последнее значение из кэша, если оно есть.
      */
-    public LiveData<ForecastData> getForecast(double lat, double lon) {
+    private <T> void load(WeatherSource<T> source, double fixLat, double fixLon,
+                          WeatherCallback<T> callback, boolean pushRevalidated, RequestHandle handle) {
+        // Данные есть только для точек каталога: позиция привязывается к ближайшей
+        LocationResolver.Resolution point = locationResolver.resolve(fixLat, fixLon);
+        double lat = point.lat;
+        double lon = point.lon;
+        
         // Проверяем кэш
-        String cacheKey = lat + "," + lon;
-        ForecastData cached = forecastCache.get(cacheKey);
+        long cacheKey = locationQuantizer.key(lat, lon);
+        // Точка вне каталога или сервер недавно её отверг: ответ был бы тем же
+        if (point.rejectedCode != 0) {
+            callback.onError(rejectionError(point, source.endpoint));
+            return;
+        }
+        T cached = source.memoryCache.get(cacheKey);
         if (cached != null) {
-            forecastData.setValue(cached);
-            return forecastData;
+            callback.onSuccess(cached);
+            return;
+        }
+        
+        // Срок нужен только путям, которые идут на диск или в сеть
+        Deadline deadline = Deadline.after(OPERATION_DEADLINE_MILLIS);
+        boolean pushFresh = pushRevalidated || staleWhileRevalidate;
+        if (staleWhileRevalidate) {
+            T stale = source.memoryCache.getStale(cacheKey);
+            if (stale != null) {
+                serveAndRevalidate(source, lat, lon, cacheKey, stale, callback, pushFresh, handle, deadline);
+                return;
+            }
         }
         
+        // Чтение с диска не должно блокировать главный поток.
+        // Устаревшие данные с диска показываются только в режиме stale-while-revalidate и
+        // не старше max-stale; без него годятся только свежие
+        long diskMaxAge = staleWhileRevalidate
+                ? source.memoryCache.getMaxAgeMillis() : source.memoryCache.getTtlMillis();
+        ioExecutor.execute(() -> {
+            DiskCache.Entry<T> persisted = diskCache.readEntry(source.endpoint,
+                    LocationQuantizer.toString(cacheKey), source.type, diskMaxAge);
+            mainHandler.post(() -> {
+                // Пока читали диск, запрос мог стать ненужным
+                if (handle != null && handle.isCancelled()) {
+                    return;
+                }
+                if (persisted == null) {
+                    fetchFromNetwork(source, lat, lon, cacheKey, callback, handle, deadline);
+                    return;
+                }
+                
+                // Поднимаем запись в память с прежним возрастом, чтобы следующая загрузка не шла на диск.
+                // Ответ сети, пришедший за время чтения, новее - его не затираем
+                T value = persisted.getValue();
+                if (source.memoryCache.peek(cacheKey) == null) {
+                    source.memoryCache.put(cacheKey, value, persisted.getStoredAt());
+                }
+                if (System.currentTimeMillis() - persisted.getStoredAt() <= source.memoryCache.getTtlMillis()) {
+                    callback.onSuccess(value);
+                } else {
+                    serveAndRevalidate(source, lat, lon, cacheKey, value, callback, pushFresh, handle, deadline);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Отдаёт устаревшее значение и запускает одно фоновое обновление
+     */
+    private <T> void serveAndRevalidate(WeatherSource<T> source, double lat, double lon, long cacheKey,
+                                        T stale, WeatherCallback<T> callback, boolean pushFresh,
+                                        RequestHandle handle, Deadline deadline) {
+        callback.onSuccess(stale);
+        // При открытом предохранителе обновление всё равно бы не удалось
+        if (errorHandler.isNetworkAvailable() && !circuitBreaker.isOpen()) {
+            // Одинаковые фоновые обновления схлопываются в RequestCoalescer
+            WeatherCallback<T> refreshCallback = revalidationCallback(source, callback, pushFresh);
+            if (source.revalidator != null) {
+                source.revalidator.revalidate(lat, lon, cacheKey, stale, refreshCallback, handle, deadline);
+            } else {
+                fetchFromNetwork(source, lat, lon, cacheKey, refreshCallback, handle, deadline);
+            }
+        }
+    }
+    
+    private <T> void fetchFromNetwork(WeatherSource<T> source, double lat, double lon,
+                                      long cacheKey, WeatherCallback<T> callback, RequestHandle handle,
+                                      Deadline deadline) {
         // Проверяем доступность сети
         if (!errorHandler.isNetworkAvailable()) {
             ErrorState networkError = errorHandler.handleError(
                     ErrorType.NETWORK_UNAVAILABLE,
                     "Please check your internet connection",
-                    false // Прогноз не критичен
+                    source.isCritical
             );
-            errorState.setValue(networkError);
-            simpleErrorMessage.setValue(networkError.getMessage());
-            return forecastData;
+            callback.onError(networkError);
+            return;
+        }
+        
+        // Сервер недоступен: отвечаем сразу, по возможности последними данными из кэша
+        if (circuitBreaker.isOpen()) {
+            serveFallback(source, cacheKey, callback, errorHandler.handleError(
+                    ErrorType.SERVER_UNAVAILABLE,
+                    "Weather server is unavailable, retrying shortly",
+                    source.isCritical
+            ));
+            return;
         }
         
-        weatherApi.getForecast(lat, lon).enqueue(new Callback<ApiResponse<ForecastData>>() {
+        // Срок истёк ещё до сети, например на медленном чтении диска
+        if (deadline.isExpired()) {
+            serveFallback(source, cacheKey, callback, deadlineError(source));
+            return;
+        }
+        
+        // Если такой же запрос уже в полёте, просто ждём его результата
+        String flightKey = flightKey(source, cacheKey);
+        boolean leader = requestCoalescer.join(flightKey, callback);
+        if (handle != null) {
+            handle.track(flightKey, callback);
+        }
+        if (!leader) {
+            android.util.Log.d(TAG, "Coalesced " + flightKey);
+            return;
+        }
+        
+        enqueueFull(source, lat, lon, cacheKey, flightKey, deadline);
+    }
+    
+    /**
+     * Последнее значение из кэша вместо ошибки, даже устаревшее; без него - error
+     */
+    private <T> void serveFallback(WeatherSource<T> source, long cacheKey, WeatherCallback<T> callback,
+                                   ErrorState error) {
+        T fallback = source.memoryCache.peek(cacheKey);
+        if (fallback != null) {
+            callback.onSuccess(fallback);
+        } else {
+            callback.onError(error);
+        }
+    }
+    
+    private ErrorState deadlineError(WeatherSource<?> source) {
+        return errorHandler.handleError(
+                ErrorType.NETWORK_TIMEOUT,
+                "Weather request took too long (" + source.endpoint + ")",
+                source.isCritical
+        );
+    }
+    
+    private static String flightKey(WeatherSource<?> source, long cacheKey) {
+        return source.endpoint + "|" + LocationQuantizer.toString(cacheKey);
+    }
+    
+    /**
+     * Полный запрос; результат получат все участники полёта flightKey
+     */
+    private <T> void enqueueFull(WeatherSource<T> source, double lat, double lon,
+                                 long cacheKey, String flightKey, Deadline deadline) {
+        Call<ApiResponse<T>> apiCall = source.apiCall.create(lat, lon);
+        if (source.hedging != null && hedgingEnabled) {
+            apiCall = source.hedging.wrap(apiCall);
+        }
+        deadline.applyTo(apiCall);
+        requestCoalescer.attach(flightKey, apiCall);
+        apiCall.enqueue(new Callback<ApiResponse<T>>() {
             @Override
-            public void onResponse(Call<ApiResponse<ForecastData>> call, 
-                                  Response<ApiResponse<ForecastData>> response) {
+            public void onResponse(Call<ApiResponse<T>> call, Response<ApiResponse<T>> response) {
                 
-                android.util.Log.d(TAG, "Запрос forecast: " + call.request().url());
+                android.util.Log.d(TAG, "Запрос " + source.endpoint + ": " + call.request().url());
                 
                 if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<ForecastData> apiResp = response.body();
+                    ApiResponse<T> apiResp = response.body();
                     if (apiResp.isSuccess()) {
-                        ForecastData forecast = apiResp.getData();
-                        // Кэшируем результат
-                        forecastCache.put(cacheKey, forecast);
-                        forecastData.setValue(forecast);
-                        // Очищаем ошибки
-                        errorState.setValue(null);
-                        simpleErrorMessage.setValue(null);
+                        T data = apiResp.getData();
+                        // Кэшируем результат в памяти и на диске
+                        source.memoryCache.put(cacheKey, data);
+                        diskCache.writeAsync(source.endpoint, LocationQuantizer.toString(cacheKey), data);
+                        requestCoalescer.complete(flightKey, data);
                     } else {
-                        handleApiError(apiResp.getMessage(), "forecast", false);
+                        requestCoalescer.fail(flightKey,
+                                handleApiError(apiResp.getMessage(), source.endpoint, false));
                     }
                 } else {
-                    handleHttpError(response.code(), response.message(), "forecast");
+                    if (isPermanentRejection(response.code())) {
+                        negativeCache.put(lat, lon, response.code());
+                    }
+                    requestCoalescer.fail(flightKey,
+                            handleHttpError(response.code(), response.message(), source.endpoint));
                 }
             }
             
             @Override
-            public void onFailure(Call<ApiResponse<ForecastData>> call, Throwable t) {
+            public void onFailure(Call<ApiResponse<T>> call, Throwable t) {
+                // OkHttp отменяет запрос и по истечении call timeout; это не уход ожидающих
+                if (call.isCanceled() && !deadline.isExpired()) {
+                    // Все ожидающие ушли к более новому запросу
+                    android.util.Log.d(TAG, "Cancelled " + flightKey);
+                    return;
+                }
+                // Срок истёк или сервер попросил подождать (Retry-After): лучше данные из кэша
+                T fallback = source.memoryCache.peek(cacheKey);
+                ErrorType type = ErrorType.fromThrowable(t);
+                if (fallback != null && (deadline.isExpired() || type == ErrorType.NETWORK_TIMEOUT
+                        || type == ErrorType.SERVER_UNAVAILABLE)) {
+                    android.util.Log.w(TAG, "Serving cached value for " + flightKey + ": " + t.getMessage());
+                    requestCoalescer.complete(flightKey, fallback);
+                    return;
+                }
                 android.util.Log.e(TAG, "Сетевая ошибка: " + t.getMessage(), t);
-                handleNetworkError(t, "forecast");
+                requestCoalescer.fail(flightKey, handleNetworkError(t, source.endpoint));
             }
         });
-        
-        return forecastData;
     }
     
     /**
-     * НОВЫЙ: Получение текущей погоды через коллбэк с обработкой ошибок
+     * Обновление прогноза по дельте: сервер присылает только добавленные, изменённые
+     * и удалённые дни относительно версии stale, и они применяются к этому же объекту.
+     * Если дельта не подходит или не получена, выполняется обычный полный запрос
      */
-    public void getCurrentWeather(double lat, double lon, WeatherCallback<CurrentWeather> callback) {
-        // Проверяем кэш
-        String cacheKey = lat + "," + lon;
-        CurrentWeather cached = currentCache.get(cacheKey);
-        if (cached != null) {
-            callback.onSuccess(cached);
+    private void revalidateForecast(double lat, double lon, long cacheKey, ForecastData stale,
+                                    WeatherCallback<ForecastData> callback, RequestHandle handle,
+                                    Deadline deadline) {
+        if (stale.getVersion() == null) {
+            fetchFromNetwork(forecastSource, lat, lon, cacheKey, callback, handle, deadline);
             return;
         }
         
-        // Проверяем доступность сети
-        if (!errorHandler.isNetworkAvailable()) {
-            ErrorState networkError = errorHandler.handleError(
-                    ErrorType.NETWORK_UNAVAILABLE,
-                    "Please check your internet connection",
-                    true
-            );
-            callback.onError(networkError);
+        String flightKey = flightKey(forecastSource, cacheKey);
+        boolean leader = requestCoalescer.join(flightKey, callback);
+        if (handle != null) {
+            handle.track(flightKey, callback);
+        }
+        if (!leader) {
+            android.util.Log.d(TAG, "Coalesced " + flightKey);
             return;
         }
         
-        weatherApi.getCurrentWeather(lat, lon).enqueue(new Callback<ApiResponse<CurrentWeather>>() {
+        Call<ApiResponse<ForecastDelta>> deltaCall = weatherApi.getForecastDelta(lat, lon, stale.getVersion());
+        deadline.applyTo(deltaCall);
+        requestCoalescer.attach(flightKey, deltaCall);
+        deltaCall.enqueue(new Callback<ApiResponse<ForecastDelta>>() {
             @Override
-            public void onResponse(Call<ApiResponse<CurrentWeather>> call, 
-                                  Response<ApiResponse<CurrentWeather>> response) {
+            public void onResponse(Call<ApiResponse<ForecastDelta>> call,
+                                   Response<ApiResponse<ForecastDelta>> response) {
                 
-                android.util.Log.d(TAG, "Запрос current: " + call.request().url());
+                android.util.Log.d(TAG, "Запрос forecast delta: " + call.request().url());
                 
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<CurrentWeather> apiResp = response.body();
-                    if (apiResp.isSuccess()) {
-                        CurrentWeather weather = apiResp.getData();
-                        // Кэшируем результат
-                        currentCache.put(cacheKey, weather);
-                        callback.onSuccess(weather);
-                    } else {
-                        ErrorState error = handleApiErrorForCallback(
-                                apiResp.getMessage(), "current_weather", false);
-                        callback.onError(error);
-                    }
+                ApiResponse<ForecastDelta> apiResp = response.body();
+                if (response.isSuccessful() && apiResp != null && apiResp.isSuccess()
+                        && apiResp.getData() != null && stale.applyDelta(apiResp.getData())) {
+                    forecastDeltaCount.incrementAndGet();
+                    // Тот же объект, но с новым временем сохранения
+                    forecastCache.put(cacheKey, stale);
+                    diskCache.writeAsync(forecastSource.endpoint, LocationQuantizer.toString(cacheKey), stale);
+                    requestCoalescer.complete(flightKey, stale);
                 } else {
-                    ErrorState error = handleHttpErrorForCallback(
-                            response.code(), response.message(), "current_weather");
-                    callback.onError(error);
+                    android.util.Log.w(TAG, "Forecast delta unusable (HTTP " + response.code()
+                            + "), falling back to full forecast");
+                    enqueueFull(forecastSource, lat, lon, cacheKey, flightKey, deadline);
                 }
             }
             
             @Override
-            public void onFailure(Call<ApiResponse<CurrentWeather>> call, Throwable t) {
-                android.util.Log.e(TAG, "Сетевая ошибка: " + t.getMessage(), t);
-                ErrorState error = handleNetworkErrorForCallback(t, "current_weather");
-                callback.onError(error);
+            public void onFailure(Call<ApiResponse<ForecastDelta>> call, Throwable t) {
+                if (call.isCanceled() && !deadline.isExpired()) {
+                    android.util.Log.d(TAG, "Cancelled " + flightKey);
+                    return;
+                }
+                if (deadline.isExpired()) {
+                    android.util.Log.e(TAG, "Сетевая ошибка: " + t.getMessage(), t);
+                    requestCoalescer.fail(flightKey, handleNetworkError(t, "forecast delta"));
+                    return;
+                }
+                // Сбой мог касаться только дельты: на полный прогноз ещё остаётся время
+                android.util.Log.w(TAG, "Forecast delta failed (" + t.getMessage()
+                        + "), falling back to full forecast");
+                enqueueFull(forecastSource, lat, lon, cacheKey, flightKey, deadline);
             }
         });
     }
     
     /**
-     * НОВЫЙ: Получение прогноза через коллбэк с обработкой ошибок
+     * Обновляет погоду и прогноз сразу для нескольких точек одним запросом.
+     * coordinates - список пар {lat, lon}; результаты раскладываются по записям кэша
+     * так же, как при одиночных запросах. Больше BATCH_MAX_LOCATIONS точек делятся на
+     * несколько параллельных запросов; коллбэк получает их результаты одним списком в
+     * исходном порядке. Если хоть один запрос не удался, коллбэк получает его ошибку,
+     * но результаты остальных уже лежат в кэше.
      */
-    public void getForecast(double lat, double lon, WeatherCallback<ForecastData> callback) {
-        // Проверяем кэш
-        String cacheKey = lat + "," + lon;
-        ForecastData cached = forecastCache.get(cacheKey);
-        if (cached != null) {
-            callback.onSuccess(cached);
+    public void refreshLocations(List<double[]> coordinates, WeatherCallback<BatchWeather> callback) {
+        if (coordinates.isEmpty()) {
+            callback.onSuccess(new BatchWeather());
             return;
         }
         
         // Проверяем доступность сети
         if (!errorHandler.isNetworkAvailable()) {
-            ErrorState networkError = errorHandler.handleError(
+            callback.onError(errorHandler.handleError(
                     ErrorType.NETWORK_UNAVAILABLE,
                     "Please check your internet connection",
                     false
-            );
-            callback.onError(networkError);
+            ));
             return;
         }
         
-        weatherApi.getForecast(lat, lon).enqueue(new Callback<ApiResponse<ForecastData>>() {
+        List<String> locations = new ArrayList<>(coordinates.size());
+        for (double[] point : coordinates) {
+            double[] snapped = locationResolver.snap(point[0], point[1]);
+            locations.add(snapped[0] + "," + snapped[1]);
+        }
+        
+        int chunkCount = (locations.size() + BATCH_MAX_LOCATIONS - 1) / BATCH_MAX_LOCATIONS;
+        BatchMerge merge = new BatchMerge(chunkCount, callback);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int from = chunk * BATCH_MAX_LOCATIONS;
+            int to = Math.min(locations.size(), from + BATCH_MAX_LOCATIONS);
+            enqueueBatch(new ArrayList<>(locations.subList(from, to)), chunk, merge);
+        }
+    }
+    
+    private void enqueueBatch(List<String> locations, int chunk, BatchMerge merge) {
+        weatherApi.getWeatherBatch(locations, BATCH_INCLUDE_ALL).enqueue(new Callback<ApiResponse<BatchWeather>>() {
             @Override
-            public void onResponse(Call<ApiResponse<ForecastData>> call, 
-                                  Response<ApiResponse<ForecastData>> response) {
+            public void onResponse(Call<ApiResponse<BatchWeather>> call,
+                                   Response<ApiResponse<BatchWeather>> response) {
                 
-                android.util.Log.d(TAG, "Запрос forecast: " + call.request().url());
+                android.util.Log.d(TAG, "Запрос batch: " + call.request().url());
                 
                 if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<ForecastData> apiResp = response.body();
-                    if (apiResp.isSuccess()) {
-                        ForecastData forecast = apiResp.getData();
-                        // Кэшируем результат
-                        forecastCache.put(cacheKey, forecast);
-                        callback.onSuccess(forecast);
+                    ApiResponse<BatchWeather> apiResp = response.body();
+                    if (apiResp.isSuccess() && apiResp.getData() != null) {
+                        cacheBatch(apiResp.getData());
+                        merge.complete(chunk, apiResp.getData());
                     } else {
-                        ErrorState error = handleApiErrorForCallback(
-                                apiResp.getMessage(), "forecast", false);
-                        callback.onError(error);
+                        merge.fail(handleApiError(apiResp.getMessage(), "batch", false));
                     }
                 } else {
-                    ErrorState error = handleHttpErrorForCallback(
-                            response.code(), response.message(), "forecast");
-                    callback.onError(error);
+                    merge.fail(handleHttpError(response.code(), response.message(), "batch"));
                 }
             }
             
             @Override
-            public void onFailure(Call<ApiResponse<ForecastData>> call, Throwable t) {
+            public void onFailure(Call<ApiResponse<BatchWeather>> call, Throwable t) {
                 android.util.Log.e(TAG, "Сетевая ошибка: " + t.getMessage(), t);
-                ErrorState error = handleNetworkErrorForCallback(t, "forecast");
-                callback.onError(error);
+                merge.fail(handleNetworkError(t, "batch"));
             }
         });
     }
     
     /**
-     * НОВЫЙ: Совместимость со старым SimpleWeatherCallback
+     * Собирает ответы частей пакетного запроса; коллбэк вызывается один раз, когда
+     * ответили все части
      */
-    public void getCurrentWeather(double lat, double lon, SimpleWeatherCallback<CurrentWeather> callback) {
-        getCurrentWeather(lat, lon, new WeatherCallback<CurrentWeather>() {
+    private static final class BatchMerge {
+        private final BatchWeather[] parts;
+        private final WeatherCallback<BatchWeather> callback;
+        private int pending;
+        private ErrorState error;
+        
+        BatchMerge(int chunkCount, WeatherCallback<BatchWeather> callback) {
+            this.parts = new BatchWeather[chunkCount];
+            this.callback = callback;
+            this.pending = chunkCount;
+        }
+        
+        void complete(int chunk, BatchWeather part) {
+            synchronized (this) {
+                parts[chunk] = part;
+                if (--pending > 0) return;
+            }
+            finish();
+        }
+        
+        void fail(ErrorState failure) {
+            synchronized (this) {
+                if (error == null) error = failure;
+                if (--pending > 0) return;
+            }
+            finish();
+        }
+        
+        private void finish() {
+            if (error != null) {
+                callback.onError(error);
+                return;
+            }
+            if (parts.length == 1) {
+                callback.onSuccess(parts[0]);
+                return;
+            }
+            List<BatchWeather.Item> results = new ArrayList<>();
+            for (BatchWeather part : parts) {
+                if (part.getResults() != null) {
+                    results.addAll(part.getResults());
+                }
+            }
+            callback.onSuccess(new BatchWeather(results));
+        }
+    }
+    
+    private void cacheBatch(BatchWeather batch) {
+        if (batch.getResults() == null) return;
+        
+        for (BatchWeather.Item item : batch.getResults()) {
+            if (!item.isSuccess()) {
+                android.util.Log.w(TAG, "Batch item " + item.getLat() + "," + item.getLon()
+                        + " failed: " + item.getMessage());
+                continue;
+            }
+            long cacheKey = locationQuantizer.key(item.getLat(), item.getLon());
+            String diskKey = LocationQuantizer.toString(cacheKey);
+            if (item.getCurrent() != null) {
+                currentCache.put(cacheKey, item.getCurrent());
+                diskCache.writeAsync(currentSource.endpoint, diskKey, item.getCurrent());
+            }
+            if (item.getForecast() != null) {
+                forecastCache.put(cacheKey, item.getForecast());
+                diskCache.writeAsync(forecastSource.endpoint, diskKey, item.getForecast());
+            }
+        }
+    }
+    
+    /**
+     * Подписывается на живые обновления текущей погоды для точек (пары {lat, lon}).
+     * Новые данные попадают в кэш, а данные первой точки - ещё и в LiveData текущей погоды.
+     * Повторный вызов заменяет подписку
+     */
+    public void startLiveUpdates(List<double[]> locations) {
+        List<double[]> snapped = new ArrayList<>(locations.size());
+        for (double[] point : locations) {
+            snapped.add(locationResolver.snap(point[0], point[1]));
+        }
+        liveDataLocation = snapped.isEmpty() ? null : snapped.get(0);
+        liveStream.subscribe(snapped);
+    }
+    
+    public void stopLiveUpdates() {
+        liveDataLocation = null;
+        liveStream.stop();
+    }
+    
+    private void applyLiveUpdate(double lat, double lon, CurrentWeather weather) {
+        long cacheKey = locationQuantizer.key(lat, lon);
+        currentCache.put(cacheKey, weather);
+        diskCache.writeAsync(currentSource.endpoint, LocationQuantizer.toString(cacheKey), weather);
+        liveUpdateCount.incrementAndGet();
+        
+        double[] shown = liveDataLocation;
+        if (shown != null && locationQuantizer.key(shown[0], shown[1]) == cacheKey) {
+            currentWeatherData.setValue(weather);
+        }
+    }
+    
+    // Сервер больше не ручается за данные точки: следующий запрос пойдёт в сеть.
+    // Показанная точка перезагружается сразу, иначе экран держал бы отозванные данные
+    private void applyLiveInvalidate(double lat, double lon) {
+        long cacheKey = locationQuantizer.key(lat, lon);
+        currentCache.remove(cacheKey);
+        diskCache.remove(currentSource.endpoint, LocationQuantizer.toString(cacheKey));
+        android.util.Log.d(TAG, "Live invalidate for cell " + LocationQuantizer.toString(cacheKey));
+        
+        double[] shown = liveDataLocation;
+        if (shown != null && locationQuantizer.key(shown[0], shown[1]) == cacheKey) {
+            getCurrentWeather(shown[0], shown[1]);
+        }
+    }
+    
+    /**
+     * Коллбэк фонового обновления: ошибки не показываем, ведь данные уже на экране
+     */
+    private <T> WeatherCallback<T> revalidationCallback(WeatherSource<T> source,
+                                                        WeatherCallback<T> callback,
+                                                        boolean pushRevalidated) {
+        return new WeatherCallback<T>() {
             @Override
-            public void onSuccess(CurrentWeather data) {
-                callback.onSuccess(data);
+            public void onSuccess(T data) {
+                if (pushRevalidated) {
+                    callback.onSuccess(data);
+                }
             }
             
             @Override
-            public void onError(ErrorState errorState) {
-                callback.onError(errorState.getMessage());
+            public void onError(ErrorState error) {
+                android.util.Log.w(TAG, "Background refresh failed (" + source.endpoint + "): "
+                        + error.getMessage());
             }
-        });
+        };
     }
     
     /**
-     * НОВЫЙ: Совместимость со старым SimpleWeatherCallback
+     * Адаптер, публикующий результат в LiveData репозитория
      */
-    public void getForecast(double lat, double lon, SimpleWeatherCallback<ForecastData> callback) {
-        getForecast(lat, lon, new WeatherCallback<ForecastData>() {
+    private <T> WeatherCallback<T> liveDataCallback(MutableLiveData<T> target) {
+        return new WeatherCallback<T>() {
             @Override
-            public void onSuccess(ForecastData data) {
-                callback.onSuccess(data);
+            public void onSuccess(T data) {
+                target.setValue(data);
+                // Очищаем ошибки
+                errorState.setValue(null);
+                simpleErrorMessage.setValue(null);
             }
             
             @Override
-            public void onError(ErrorState errorState) {
-                callback.onError(errorState.getMessage());
+            public void onError(ErrorState error) {
+                errorState.setValue(error);
+                simpleErrorMessage.setValue(error.getMessage());
             }
-        });
+        };
     }
     
     /**
@@ -386,6 +1229,8 @@ public class WeatherRepository {
     public void clearCache() {
         currentCache.clear();
         forecastCache.clear();
+        negativeCache.clear();
+        diskCache.clear();
         android.util.Log.d(TAG, "Cache cleared");
     }
     
@@ -393,42 +1238,235 @@ public class WeatherRepository {
      * Очистка кэша для конкретной локации
      */
     public void clearCache(double lat, double lon) {
-        String cacheKey = lat + "," + lon;
+        double[] snapped = locationResolver.snap(lat, lon);
+        long cacheKey = locationQuantizer.key(snapped[0], snapped[1]);
+        String diskKey = LocationQuantizer.toString(cacheKey);
         currentCache.remove(cacheKey);
         forecastCache.remove(cacheKey);
-        android.util.Log.d(TAG, "Cache cleared for location: " + cacheKey);
+        negativeCache.remove(snapped[0], snapped[1]);
+        diskCache.remove(currentSource.endpoint, diskKey);
+        diskCache.remove(forecastSource.endpoint, diskKey);
+        android.util.Log.d(TAG, "Cache cleared for location: " + lat + "," + lon + " (cell " + diskKey + ")");
     }
     
-    // Методы обработки ошибок для LiveData
-    private void handleApiError(String message, String endpoint, boolean isCritical) {
-        ErrorState error = errorHandler.handleError(
-                ErrorType.SERVER_ERROR,
-                "API Error (" + endpoint + "): " + message,
-                isCritical
-        );
-        errorState.setValue(error);
-        simpleErrorMessage.setValue(error.getMessage());
+    /**
+     * Включает или выключает режим stale-while-revalidate
+     */
+    public void setStaleWhileRevalidate(boolean enabled) {
+        this.staleWhileRevalidate = enabled;
     }
     
-    private void handleHttpError(int code, String message, String endpoint) {
-        ErrorType errorType = (code >= 500) ? ErrorType.SERVER_ERROR : ErrorType.INVALID_DATA;
-        ErrorState error = errorHandler.handleError(
-                errorType,
-                "HTTP Error " + code + " (" + endpoint + "): " + message,
-                code >= 500 // Серверные ошибки считаем критическими
-        );
-        errorState.setValue(error);
-        simpleErrorMessage.setValue(error.getMessage());
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
     }
     
-    private void handleNetworkError(Throwable t, String endpoint) {
-        ErrorState error = errorHandler.handleError(t, false);
-        errorState.setValue(error);
-        simpleErrorMessage.setValue(error.getMessage());
+    /**
+     * Включает или выключает дублирование медленных запросов текущей погоды
+     */
+    public void setHedgingEnabled(boolean enabled) {
+        this.hedgingEnabled = enabled;
+    }
+    
+    /**
+     * Задаёт реплики сервера погоды (базовые адреса вида "http://host:port/")
+     */
+    public void setServerReplicas(List<String> baseUrls) {
+        endpointPool.setReplicas(baseUrls);
     }
     
-    // Методы обработки ошибок для коллбэков
-    private ErrorState handleApiErrorForCallback(String message, String endpoint, boolean isCritical) {
+    /**
+     * Состояние реплик сервера: задержка, запросы в полёте, исключение
+     */
+    public List<String> getServerReplicaStats() {
+        return endpointPool.describeReplicas();
+    }
+    
+    /**
+     * Сколько раз реплики исключались из-за ошибок
+     */
+    public long getReplicaEjectionCount() {
+        return endpointPool.getEjectionCount();
+    }
+    
+    /**
+     * Включает или выключает двоичный формат ответов (MessagePack)
+     */
+    public void setBinaryWireFormat(boolean enabled) {
+        wireFormat.setBinaryEnabled(enabled);
+    }
+    
+    /**
+     * Включает HTTP/2 без TLS (h2c prior knowledge): текущая погода и прогноз идут по одному
+     * соединению. Сервер на Flask понимает только HTTP/1.1; включать, если он запущен через
+     * Server/serve_h2c.py. Для https-адреса HTTP/2 согласуется через ALPN и это не нужно
+     */
+    public void setHttp2PriorKnowledge(boolean enabled) {
+        http2PriorKnowledge = enabled;
+    }
+    
+    /**
+     * Статистика кэша текущей погоды
+     */
+    public WeatherCache.Stats getCurrentCacheStats() {
+        return currentCache.getStats();
+    }
+    
+    /**
+     * Статистика кэша прогнозов
+     */
+    public WeatherCache.Stats getForecastCacheStats() {
+        return forecastCache.getStats();
+    }
+    
+    /**
+     * Статистика кэша отказов: попадания - запросы, отклонённые без обращения к сети
+     */
+    public WeatherCache.Stats getNegativeCacheStats() {
+        return negativeCache.getStats();
+    }
+    
+    /**
+     * Сколько позиций отклонено без запроса, потому что рядом нет точек каталога
+     */
+    public long getOutOfCatalogCount() {
+        return locationResolver.getOutOfCatalogCount();
+    }
+    
+    /**
+     * Сколько точек в загруженном каталоге; 0 - каталога ещё нет
+     */
+    public int getSupportedLocationCount() {
+        return locationResolver.getCatalogSize();
+    }
+    
+    /**
+     * Сколько запросов было присоединено к уже выполняющимся
+     */
+    public long getCoalescedRequestCount() {
+        return requestCoalescer.getCoalescedCount();
+    }
+    
+    /**
+     * Сколько запросов реально ушло в сеть
+     */
+    public long getNetworkRequestCount() {
+        return requestCoalescer.getStartedCount();
+    }
+    
+    /**
+     * Сколько обновлений прогноза применено как дельта, без полной загрузки
+     */
+    public long getForecastDeltaCount() {
+        return forecastDeltaCount.get();
+    }
+    
+    /**
+     * Сколько обновлений текущей погоды прислал сервер
+     */
+    public long getLiveUpdateCount() {
+        return liveUpdateCount.get();
+    }
+    
+    /**
+     * Сколько раз переустанавливалось соединение живых обновлений
+     */
+    public long getLiveReconnectCount() {
+        return liveStream.getReconnectCount();
+    }
+    
+    /**
+     * Сколько соединений с сервером было открыто
+     */
+    public long getConnectionsOpened() {
+        return connectionStats.getConnectionsOpened();
+    }
+    
+    /**
+     * Сколько запросов получили уже открытое соединение из пула
+     */
+    public long getConnectionsReused() {
+        return connectionStats.getConnectionsReused();
+    }
+    
+    /**
+     * Сколько сетевых запросов отменено, потому что их результат больше никому не нужен
+     */
+    public long getCancelledRequestCount() {
+        return requestCoalescer.getCancelledCount();
+    }
+    
+    /**
+     * Сколько результатов отброшено, потому что потребитель уже перешёл к новому запросу
+     */
+    public long getIgnoredResultCount() {
+        return requestCoalescer.getIgnoredCount();
+    }
+    
+    /**
+     * Сколько запросов завершено сразу из-за открытого предохранителя
+     */
+    public long getCircuitRejectedCount() {
+        return circuitBreaker.getRejectedCount();
+    }
+    
+    /**
+     * Сколько автоматических повторов запросов было выполнено
+     */
+    public long getRetryCount() {
+        return retryInterceptor.getRetryCount();
+    }
+    
+    /**
+     * Сколько повторов не выполнено, потому что бюджет повторов исчерпан
+     */
+    public long getRetryBudgetExhaustedCount() {
+        return retryInterceptor.getBudgetExhaustedCount();
+    }
+    
+    /**
+     * Сколько фоновых запросов ждали ограничителя частоты
+     */
+    public long getRateLimitedCount() {
+        return rateLimiter.getThrottledCount();
+    }
+    
+    /**
+     * Сколько раз сервер просил подождать (Retry-After)
+     */
+    public long getRetryAfterCount() {
+        return rateLimiter.getRetryAfterCount();
+    }
+    
+    /**
+     * Сколько копий медленных запросов текущей погоды было отправлено
+     */
+    public long getHedgedRequestCount() {
+        return currentHedging.getHedgedCount();
+    }
+    
+    /**
+     * Сколько раз копия ответила раньше исходного запроса
+     */
+    public long getHedgeWinCount() {
+        return currentHedging.getHedgeWinCount();
+    }
+    
+    /**
+     * Сколько ответов пришло с полным телом (200)
+     */
+    public long getFullResponseCount() {
+        return responseStats.getFullResponseCount();
+    }
+    
+    /**
+     * Сколько ответов пришло как 304 Not Modified
+     */
+    public long getNotModifiedCount() {
+        return responseStats.getNotModifiedCount();
+    }
+    
+    // Методы обработки ошибок
+    private ErrorState handleApiError(String message, String endpoint, boolean isCritical) {
         return errorHandler.handleError(
                 ErrorType.SERVER_ERROR,
                 "API Error (" + endpoint + "): " + message,
@@ -436,16 +1474,28 @@ public class WeatherRepository {
         );
     }
     
-    private ErrorState handleHttpErrorForCallback(int code, String message, String endpoint) {
+    private ErrorState rejectionError(LocationResolver.Resolution point, String endpoint) {
+        return handleHttpError(point.rejectedCode, point.outsideCatalog ? "outside location catalog" : "cached",
+                endpoint);
+    }
+    
+    /**
+     * Ответ зависит только от координат: 404 - точка вне покрытия, 400 - неверные координаты
+     */
+    private static boolean isPermanentRejection(int code) {
+        return code == 404 || code == 400;
+    }
+    
+    private ErrorState handleHttpError(int code, String message, String endpoint) {
         ErrorType errorType = (code >= 500) ? ErrorType.SERVER_ERROR : ErrorType.INVALID_DATA;
         return errorHandler.handleError(
                 errorType,
                 "HTTP Error " + code + " (" + endpoint + "): " + message,
-                code >= 500
+                code >= 500 // Серверные ошибки считаем критическими
         );
     }
     
-    private ErrorState handleNetworkErrorForCallback(Throwable t, String endpoint) {
+    private ErrorState handleNetworkError(Throwable t, String endpoint) {
         return errorHandler.handleError(t, false);
     }
     
@@ -465,4 +1515,12 @@ public class WeatherRepository {
     public LiveData<String> getSimpleErrorMessage() {
         return simpleErrorMessage;
     }
+    
+    /**
+     * Состояние предохранителя: CLOSED - сервер доступен, OPEN - запросы не отправляются,
+     * HALF_OPEN - идёт пробный запрос
+     */
+    public LiveData<CircuitBreaker.State> getCircuitState() {
+        return circuitState;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.weatherforecast.data.repository;
+
+import androidx.annotation.Nullable;
+
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.error.ErrorState;
+
+/**
+ * Согласованный снимок погоды для одной точки: текущая погода и прогноз.
+ * Если одна из частей не загрузилась, вместо данных хранится её ошибка.
+ */
+public class WeatherSnapshot {
+    private final double latitude;
+    private final double longitude;
+    private final CurrentWeather currentWeather;
+    private final ForecastData forecast;
+    private final ErrorState currentError;
+    private final ErrorState forecastError;
+
+    public WeatherSnapshot(double latitude, double longitude,
+                           @Nullable CurrentWeather currentWeather, @Nullable ForecastData forecast,
+                           @Nullable ErrorState currentError, @Nullable ErrorState forecastError) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.currentWeather = currentWeather;
+        this.forecast = forecast;
+        this.currentError = currentError;
+        this.forecastError = forecastError;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    @Nullable public CurrentWeather getCurrentWeather() { return currentWeather; }
+    @Nullable public ForecastData getForecast() { return forecast; }
+    @Nullable public ErrorState getCurrentError() { return currentError; }
+    @Nullable public ErrorState getForecastError() { return forecastError; }
+
+    /**
+     * Обе части загружены
+     */
+    public boolean isComplete() {
+        return currentWeather != null && forecast != null;
+    }
+
+    /**
+     * Ни одна часть не загружена
+     */
+    public boolean isFailed() {
+        return currentWeather == null && forecast == null;
+    }
+}
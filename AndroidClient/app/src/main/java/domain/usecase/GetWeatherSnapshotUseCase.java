@@ -0,0 +1,17 @@
+package domain.usecase;
+
+import data.repository.RequestHandle;
+import data.repository.WeatherRepository;
+import data.repository.WeatherSnapshot;
+
+public class GetWeatherSnapshotUseCase {
+    private WeatherRepository repository;
+
+    public GetWeatherSnapshotUseCase(WeatherRepository repository) {
+        this.repository = repository;
+    }
+
+    public RequestHandle execute(double lat, double lon, WeatherRepository.WeatherCallback<WeatherSnapshot> callback) {
+        return repository.getWeatherSnapshot(lat, lon, callback);
+    }
+}
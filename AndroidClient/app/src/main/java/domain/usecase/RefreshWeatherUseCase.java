@@ -0,0 +1,18 @@
+package domain.usecase;
+
+import java.util.Collections;
+
+import data.model.BatchWeather;
+import data.repository.WeatherRepository;
+
+public class RefreshWeatherUseCase {
+    private WeatherRepository repository;
+
+    public RefreshWeatherUseCase(WeatherRepository repository) {
+        this.repository = repository;
+    }
+
+    public void execute(double lat, double lon, WeatherRepository.WeatherCallback<BatchWeather> callback) {
+        repository.refreshLocations(Collections.singletonList(new double[]{lat, lon}), callback);
+    }
+}
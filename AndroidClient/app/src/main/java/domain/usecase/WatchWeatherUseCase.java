@@ -0,0 +1,21 @@
+package domain.usecase;
+
+import java.util.Collections;
+
+import data.repository.WeatherRepository;
+
+public class WatchWeatherUseCase {
+    private WeatherRepository repository;
+
+    public WatchWeatherUseCase(WeatherRepository repository) {
+        this.repository = repository;
+    }
+
+    public void start(double lat, double lon) {
+        repository.startLiveUpdates(Collections.singletonList(new double[]{lat, lon}));
+    }
+
+    public void stop() {
+        repository.stopLiveUpdates();
+    }
+}
@@ -30,6 +30,13 @@ public enum ErrorType {
             return NETWORK_UNAVAILABLE;
         } else if (throwable instanceof java.net.SocketTimeoutException) {
             return NETWORK_TIMEOUT;
+        } else if (throwable instanceof java.io.InterruptedIOException
+                && "timeout".equals(throwable.getMessage())) {
+            // Истёк call timeout OkHttp, то есть срок всей операции
+            return NETWORK_TIMEOUT;
+        } else if (throwable instanceof com.example.weatherforecast.data.network.CircuitOpenException
+                || throwable instanceof com.example.weatherforecast.data.network.RetryAfterException) {
+            return SERVER_UNAVAILABLE;
         } else if (throwable instanceof java.io.IOException) {
             return NETWORK_UNAVAILABLE;
         } else if (throwable instanceof com.google.gson.JsonSyntaxException) {
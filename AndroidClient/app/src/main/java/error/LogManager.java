@@ -1,8 +1,11 @@
 package com.example.weatherforecast.error;
 
 import android.content.Context;
+import android.os.Build;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
 import com.example.weatherforecast.data.network.ApiService;
 import com.example.weatherforecast.data.network.RetrofitClient;
 import com.google.gson.Gson;
@@ -8,23 +8,37 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.weatherforecast.data.model.BatchWeather;
 import com.example.weatherforecast.data.model.CurrentWeather;
 import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.data.repository.RefreshScheduler;
+import com.example.weatherforecast.data.repository.RequestHandle;
 import com.example.weatherforecast.data.repository.WeatherRepository;
+import com.example.weatherforecast.data.repository.WeatherSnapshot;
 import com.example.weatherforecast.domain.usecase.GetCurrentWeatherUseCase;
 import com.example.weatherforecast.domain.usecase.GetForecastUseCase;
+import com.example.weatherforecast.domain.usecase.GetWeatherSnapshotUseCase;
+import com.example.weatherforecast.domain.usecase.RefreshWeatherUseCase;
+import com.example.weatherforecast.domain.usecase.WatchWeatherUseCase;
 import com.example.weatherforecast.error.ErrorHandler;
 import com.example.weatherforecast.error.ErrorState;
 
 public class WeatherViewModel extends AndroidViewModel {
     private static final String TAG = "WeatherViewModel";
+    // Фоновое обновление, пока экран открыт; точное время размыто RefreshScheduler
+    private static final long REFRESH_PERIOD_MILLIS = 15 * 60 * 1000;
     
     private final GetCurrentWeatherUseCase getCurrentUseCase;
     private final GetForecastUseCase getForecastUseCase;
+    private final GetWeatherSnapshotUseCase getSnapshotUseCase;
+    private final RefreshWeatherUseCase refreshUseCase;
+    private final RefreshScheduler refreshScheduler;
+    private final WatchWeatherUseCase watchUseCase;
     private final ErrorHandler errorHandler;
     
     private final MutableLiveData<CurrentWeather> currentWeather = new MutableLiveData<>();
     private final MutableLiveData<ForecastData> forecastData = new MutableLiveData<>();
+    private final MutableLiveData<WeatherSnapshot> weatherSnapshot = new MutableLiveData<>();
     private final MutableLiveData<ErrorState> errorState = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> simpleError = new MutableLiveData<>();
@@ -32,12 +46,24 @@ public class WeatherViewModel extends AndroidViewModel {
     private double lastLatitude = 0;
     private double lastLongitude = 0;
     
+    // Запрос для последней точки; запросы для прежних точек отменяются
+    private RequestHandle activeRequest;
+    
+    // Живые обновления включены (экран на переднем плане) и точка, на которую подписаны
+    private boolean liveUpdatesEnabled;
+    private double watchedLatitude;
+    private double watchedLongitude;
+    
     public WeatherViewModel(@NonNull Application application) {
         super(application);
         
         WeatherRepository repo = WeatherRepository.getInstance(application);
         this.getCurrentUseCase = new GetCurrentWeatherUseCase(repo);
         this.getForecastUseCase = new GetForecastUseCase(repo);
+        this.getSnapshotUseCase = new GetWeatherSnapshotUseCase(repo);
+        this.refreshUseCase = new RefreshWeatherUseCase(repo);
+        this.refreshScheduler = new RefreshScheduler(this::refreshInBackground, REFRESH_PERIOD_MILLIS);
+        this.watchUseCase = new WatchWeatherUseCase(repo);
         this.errorHandler = new ErrorHandler(application);
         
         // Инициализируем наблюдателей для Use Cases
@@ -122,21 +148,133 @@ public class WeatherViewModel extends AndroidViewModel {
         getForecastUseCase.execute(lat, lon);
     }
     
+    /**
+     * Загружает текущую погоду и прогноз параллельно и публикует их одним снимком
+     */
+    public void loadWeather(double lat, double lon) {
+        // Сохраняем последние координаты для возможности повтора
+        lastLatitude = lat;
+        lastLongitude = lon;
+        
+        // Проверяем доступность сети перед запросом
+        if (!errorHandler.isNetworkAvailable()) {
+            ErrorState networkError = errorHandler.handleError(
+                    com.example.weatherforecast.error.ErrorType.NETWORK_UNAVAILABLE,
+                    true
+            );
+            errorState.setValue(networkError);
+            isLoading.setValue(false);
+            return;
+        }
+        
+        isLoading.setValue(true);
+        watchLastLocation();
+        
+        // Новый запрос заменяет прежний: для другой точки тот отменяется, для той же ячейки
+        // новая загрузка присоединяется к уже идущему сетевому запросу
+        RequestHandle previous = activeRequest;
+        activeRequest = getSnapshotUseCase.execute(lat, lon, new WeatherRepository.WeatherCallback<WeatherSnapshot>() {
+            @Override
+            public void onSuccess(WeatherSnapshot snapshot) {
+                weatherSnapshot.setValue(snapshot);
+                if (snapshot.getCurrentWeather() != null) {
+                    currentWeather.setValue(snapshot.getCurrentWeather());
+                }
+                if (snapshot.getForecast() != null) {
+                    forecastData.setValue(snapshot.getForecast());
+                }
+                isLoading.setValue(false);
+                
+                // Частичный результат: показываем ошибку недостающей части, но не экран ошибки
+                ErrorState partError = snapshot.getCurrentError() != null
+                        ? snapshot.getCurrentError() : snapshot.getForecastError();
+                errorState.setValue(partError == null ? null : new ErrorState(
+                        partError.getErrorType(), partError.getMessage(), partError.getThrowable(), false));
+                simpleError.setValue(null);
+            }
+            
+            @Override
+            public void onError(ErrorState error) {
+                errorState.setValue(error);
+                isLoading.setValue(false);
+                Log.e(TAG, "Weather request failed: " + error.getMessage());
+            }
+        });
+        activeRequest.supersede(previous);
+    }
+    
+    /**
+     * Включает фоновые обновления (экран на переднем плане)
+     */
+    public void startAutoRefresh() {
+        refreshScheduler.start();
+    }
+    
+    public void stopAutoRefresh() {
+        refreshScheduler.stop();
+    }
+    
+    /**
+     * Включает живые обновления текущей погоды для последней точки; при смене точки
+     * подписка переходит на новую
+     */
+    public void startLiveUpdates() {
+        liveUpdatesEnabled = true;
+        watchLastLocation();
+    }
+    
+    public void stopLiveUpdates() {
+        liveUpdatesEnabled = false;
+        watchedLatitude = 0;
+        watchedLongitude = 0;
+        watchUseCase.stop();
+    }
+    
+    private void watchLastLocation() {
+        if (!liveUpdatesEnabled || (lastLatitude == 0 && lastLongitude == 0)) return;
+        if (lastLatitude == watchedLatitude && lastLongitude == watchedLongitude) return;
+        watchedLatitude = lastLatitude;
+        watchedLongitude = lastLongitude;
+        watchUseCase.start(lastLatitude, lastLongitude);
+    }
+    
+    /**
+     * Сеть снова доступна. Обновление откладывается на случайное время, чтобы
+     * устройства, поймавшие сеть одновременно, не пришли на сервер разом
+     */
+    public void onNetworkAvailable() {
+        refreshScheduler.wakeUp();
+    }
+    
+    // Обновляет кэш фоновым пакетным запросом и показывает результат уже из кэша
+    private void refreshInBackground() {
+        if (lastLatitude == 0 && lastLongitude == 0) return;
+        refreshUseCase.execute(lastLatitude, lastLongitude, new WeatherRepository.WeatherCallback<BatchWeather>() {
+            @Override
+            public void onSuccess(BatchWeather data) {
+                loadWeatherForLastLocation();
+            }
+            
+            @Override
+            public void onError(ErrorState error) {
+                // На экране остаются прежние данные
+                Log.w(TAG, "Background refresh failed: " + error.getMessage());
+            }
+        });
+    }
+    
     public void loadWeatherForLastLocation() {
         if (lastLatitude != 0 && lastLongitude != 0) {
-            loadCurrentWeather(lastLatitude, lastLongitude);
-            loadForecast(lastLatitude, lastLongitude);
+            loadWeather(lastLatitude, lastLongitude);
         }
     }
     
     public void retryLastRequest() {
         if (lastLatitude != 0 && lastLongitude != 0) {
-            loadCurrentWeather(lastLatitude, lastLongitude);
-            loadForecast(lastLatitude, lastLongitude);
+            loadWeather(lastLatitude, lastLongitude);
         } else {
             // Если нет сохраненных координат, используем дефолтные
-            loadCurrentWeather(55.7558, 37.6173); // Москва
-            loadForecast(55.7558, 37.6173);
+            loadWeather(55.7558, 37.6173); // Москва
         }
     }
     
@@ -204,6 +342,10 @@ public class WeatherViewModel extends AndroidViewModel {
         return forecastData;
     }
     
+    public LiveData<WeatherSnapshot> getWeatherSnapshot() {
+        return weatherSnapshot;
+    }
+    
     public LiveData<ErrorState> getErrorState() {
         return errorState;
     }
@@ -227,6 +369,11 @@ public class WeatherViewModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
+        refreshScheduler.stop();
+        watchUseCase.stop();
+        if (activeRequest != null) {
+            activeRequest.cancel();
+        }
         // Очищаем наблюдателей чтобы избежать утечек памяти
         getCurrentUseCase.getCurrentWeatherData().removeObservers(null);
         getCurrentUseCase.getError().removeObservers(null);
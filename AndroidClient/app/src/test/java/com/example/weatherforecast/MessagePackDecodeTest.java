@@ -0,0 +1,225 @@
+package com.example.weatherforecast;
+
+import com.example.weatherforecast.data.model.ApiResponse;
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.data.network.MessagePackReader;
+import com.example.weatherforecast.data.network.WeatherTypeAdapters;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Разбор ответов в MessagePack на клиенте: те же модели, что из JSON, и время разбора.
+ * Байты MessagePack строятся из файлов сервера так же, как их упаковывает msgpack.packb.
+ */
+public class MessagePackDecodeTest {
+    private static final File DATA_DIR = new File("../../Server/data/weather");
+    private static final String[] CITIES = {"Moscow", "Perm", "Sochi", "Spb"};
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+    // Оба разбора идут через одни адаптеры; допуск на шум машины
+    private static final double STEADY_STATE_TOLERANCE = 1.5;
+
+    @Test
+    public void messagePack_decodesToSameModels() throws IOException {
+        TypeAdapter<ApiResponse<CurrentWeather>> current = currentAdapter();
+        TypeAdapter<ApiResponse<ForecastData>> forecast = forecastAdapter();
+        for (String city : CITIES) {
+            byte[] currentJson = envelope(read("current", city));
+            CurrentWeather fromJson = current.read(jsonReader(currentJson)).getData();
+            CurrentWeather fromPack = current.read(new MessagePackReader(pack(currentJson))).getData();
+            assertEquals(fromJson.getCity(), fromPack.getCity());
+            assertEquals(fromJson.getTemperature(), fromPack.getTemperature(), 0.0);
+            assertEquals(fromJson.getWindDirection(), fromPack.getWindDirection());
+
+            byte[] forecastJson = envelope(read("forecast", city));
+            ForecastData expected = forecast.read(jsonReader(forecastJson)).getData();
+            ForecastData actual = forecast.read(new MessagePackReader(pack(forecastJson))).getData();
+            assertEquals(expected.getDayCount(), actual.getDayCount());
+            for (int i = 0; i < expected.getDayCount(); i++) {
+                assertEquals(expected.getDatetime(i), actual.getDatetime(i));
+                assertEquals(expected.getTemperatureMin(i), actual.getTemperatureMin(i));
+                assertEquals(expected.getTemperatureMax(i), actual.getTemperatureMax(i));
+                assertEquals(expected.getCondition(i), actual.getCondition(i));
+            }
+
+            assertTrue(pack(currentJson).length < compact(currentJson).length);
+            assertTrue(pack(forecastJson).length < compact(forecastJson).length);
+        }
+    }
+
+    @Test
+    public void messagePackDecode_isNotSlowerThanJson() throws IOException {
+        TypeAdapter<ApiResponse<ForecastData>> adapter = forecastAdapter();
+        // Из сети приходят байты, поэтому JSON тоже разбирается из UTF-8
+        byte[] json = compact(envelope(read("forecast", "Moscow")));
+        byte[] packed = pack(json);
+        for (int i = 0; i < WARMUP; i++) {
+            adapter.read(jsonReader(json));
+            adapter.read(new MessagePackReader(packed));
+        }
+
+        int jsonDays = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            jsonDays += adapter.read(jsonReader(json)).getData().getDayCount();
+        }
+        long jsonNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        int packDays = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            packDays += adapter.read(new MessagePackReader(packed)).getData().getDayCount();
+        }
+        long packNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println("Forecast decode (" + json.length + " B JSON, " + packed.length
+                + " B MessagePack): JSON " + jsonNanos + " ns/op, MessagePack " + packNanos + " ns/op");
+        assertEquals(jsonDays, packDays);
+        assertTrue("JSON " + jsonNanos + " ns, MessagePack " + packNanos + " ns",
+                packNanos <= jsonNanos * STEADY_STATE_TOLERANCE);
+    }
+
+    private static TypeAdapter<ApiResponse<CurrentWeather>> currentAdapter() {
+        return WeatherTypeAdapters.apiResponse(WeatherTypeAdapters.CURRENT_WEATHER);
+    }
+
+    private static TypeAdapter<ApiResponse<ForecastData>> forecastAdapter() {
+        return WeatherTypeAdapters.apiResponse(WeatherTypeAdapters.FORECAST_DATA);
+    }
+
+    private static JsonReader jsonReader(byte[] json) {
+        return new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+    }
+
+    private static String read(String kind, String city) throws IOException {
+        File file = new File(new File(DATA_DIR, kind), city + ".json");
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    // Тот же конверт, что формирует create_response на сервере
+    private static byte[] envelope(String data) {
+        return ("{\"data\":" + data + ",\"message\":\"ok\",\"status\":\"success\","
+                + "\"timestamp\":\"2025-11-29T14:00:00\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compact(byte[] json) {
+        return parse(json).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static JsonElement parse(byte[] json) {
+        return JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Упаковка как у msgpack.packb: целые - самым коротким типом, дробные - float64
+     */
+    private static byte[] pack(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pack(parse(json), out);
+        return out.toByteArray();
+    }
+
+    private static void pack(JsonElement element, ByteArrayOutputStream out) {
+        if (element.isJsonNull()) {
+            out.write(0xc0);
+        } else if (element.isJsonObject()) {
+            header(element.getAsJsonObject().size(), 0x80, 0xde, 0xdf, out);
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                packString(entry.getKey(), out);
+                pack(entry.getValue(), out);
+            }
+        } else if (element.isJsonArray()) {
+            List<JsonElement> items = element.getAsJsonArray().asList();
+            header(items.size(), 0x90, 0xdc, 0xdd, out);
+            for (JsonElement item : items) {
+                pack(item, out);
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? 0xc3 : 0xc2);
+            } else if (primitive.isString()) {
+                packString(primitive.getAsString(), out);
+            } else {
+                String number = primitive.getAsString();
+                if (number.contains(".") || number.contains("e") || number.contains("E")) {
+                    out.write(0xcb);
+                    writeBigEndian(Double.doubleToLongBits(primitive.getAsDouble()), 8, out);
+                } else {
+                    packLong(primitive.getAsLong(), out);
+                }
+            }
+        }
+    }
+
+    private static void packLong(long value, ByteArrayOutputStream out) {
+        if (value >= -32 && value <= 127) {
+            out.write((int) value & 0xff);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            out.write(0xd0);
+            writeBigEndian(value, 1, out);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            out.write(0xd1);
+            writeBigEndian(value, 2, out);
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            out.write(0xd2);
+            writeBigEndian(value, 4, out);
+        } else {
+            out.write(0xd3);
+            writeBigEndian(value, 8, out);
+        }
+    }
+
+    private static void packString(String value, ByteArrayOutputStream out) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            out.write(0xa0 | bytes.length);
+        } else if (bytes.length <= 0xff) {
+            out.write(0xd9);
+            writeBigEndian(bytes.length, 1, out);
+        } else if (bytes.length <= 0xffff) {
+            out.write(0xda);
+            writeBigEndian(bytes.length, 2, out);
+        } else {
+            out.write(0xdb);
+            writeBigEndian(bytes.length, 4, out);
+        }
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void header(int size, int fixBase, int code16, int code32, ByteArrayOutputStream out) {
+        if (size < 16) {
+            out.write(fixBase | size);
+        } else if (size <= 0xffff) {
+            out.write(code16);
+            writeBigEndian(size, 2, out);
+        } else {
+            out.write(code32);
+            writeBigEndian(size, 4, out);
+        }
+    }
+
+    private static void writeBigEndian(long value, int bytes, ByteArrayOutputStream out) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xff);
+        }
+    }
+}
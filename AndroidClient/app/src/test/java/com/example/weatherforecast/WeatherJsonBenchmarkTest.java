@@ -0,0 +1,161 @@
+package com.example.weatherforecast;
+
+import com.example.weatherforecast.data.model.ApiResponse;
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.example.weatherforecast.data.model.ForecastData;
+import com.example.weatherforecast.data.network.WeatherTypeAdapters;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Сравнение потоковых адаптеров с рефлексивным Gson на данных сервера.
+ * Проверяет, что результаты совпадают, что первый разбор (холодный старт приложения) заметно
+ * быстрее без рефлексии и что после прогрева потоковый разбор не медленнее.
+ */
+public class WeatherJsonBenchmarkTest {
+    private static final File DATA_DIR = new File("../../Server/data/weather");
+    private static final String[] CITIES = {"Moscow", "Perm", "Sochi", "Spb"};
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+    private static final int COLD_TRIALS = 25;
+    // На JVM медиана первого разбора ~300 мкс против ~10 мкс; порог с большим запасом
+    private static final int MIN_FIRST_PARSE_SPEEDUP = 2;
+    private static final double STEADY_STATE_TOLERANCE = 1.5;
+
+    private static final Type CURRENT_TYPE = new TypeToken<ApiResponse<CurrentWeather>>() {}.getType();
+    private static final Type FORECAST_TYPE = new TypeToken<ApiResponse<ForecastData>>() {}.getType();
+
+    @Test
+    public void streamingDecode_matchesReflective() throws IOException {
+        for (String city : CITIES) {
+            String current = envelope(read("current", city));
+            String forecast = envelope(read("forecast", city));
+
+            ApiResponse<CurrentWeather> reflective = new Gson().fromJson(current, CURRENT_TYPE);
+            ApiResponse<CurrentWeather> streaming = currentAdapter().read(
+                    new JsonReader(new StringReader(current)));
+            assertEquals(reflective.getStatus(), streaming.getStatus());
+            assertEquals(reflective.getData().getCity(), streaming.getData().getCity());
+            assertEquals(reflective.getData().getTemperature(), streaming.getData().getTemperature(), 0.0);
+            assertEquals(reflective.getData().getWindDirection(), streaming.getData().getWindDirection());
+
+            ApiResponse<ForecastData> reflectiveForecast = new Gson().fromJson(forecast, FORECAST_TYPE);
+            ApiResponse<ForecastData> streamingForecast = forecastAdapter().read(
+                    new JsonReader(new StringReader(forecast)));
+            assertEquals(reflectiveForecast.getData().getForecast().size(),
+                    streamingForecast.getData().getForecast().size());
+            for (int i = 0; i < streamingForecast.getData().getForecast().size(); i++) {
+                ForecastData.ForecastItem expected = reflectiveForecast.getData().getForecast().get(i);
+                ForecastData.ForecastItem actual = streamingForecast.getData().getForecast().get(i);
+                assertEquals(expected.getDatetime(), actual.getDatetime());
+                assertEquals(expected.getTemperatureMin(), actual.getTemperatureMin());
+                assertEquals(expected.getTemperatureMax(), actual.getTemperatureMax());
+                assertEquals(expected.getCondition(), actual.getCondition());
+            }
+        }
+    }
+
+    @Test
+    public void firstDecode_isFasterWithoutReflection() throws IOException {
+        String forecast = envelope(read("forecast", "Moscow"));
+        ApiResponse<ForecastData> reference = new Gson().fromJson(forecast, FORECAST_TYPE);
+        int expectedDays = reference.getData().getDayCount();
+        assertTrue(expectedDays > 0);
+
+        // Первый разбор: новый экземпляр Gson должен заново проинспектировать классы,
+        // потоковому адаптеру инспектировать нечего
+        long[] reflective = new long[COLD_TRIALS];
+        long[] streaming = new long[COLD_TRIALS];
+        for (int i = 0; i < COLD_TRIALS; i++) {
+            long start = System.nanoTime();
+            ApiResponse<ForecastData> viaGson = new Gson().fromJson(forecast, FORECAST_TYPE);
+            reflective[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ApiResponse<ForecastData> viaAdapter = forecastAdapter().read(new JsonReader(new StringReader(forecast)));
+            streaming[i] = System.nanoTime() - start;
+
+            assertEquals(expectedDays, viaGson.getData().getDayCount());
+            assertEquals(expectedDays, viaAdapter.getData().getDayCount());
+        }
+        long reflectiveMedian = median(reflective);
+        long streamingMedian = median(streaming);
+        System.out.println("Forecast decode, first parse (median): reflective " + reflectiveMedian / 1000
+                + " us, streaming " + streamingMedian / 1000 + " us");
+        assertTrue("first parse: reflective " + reflectiveMedian + " ns, streaming " + streamingMedian + " ns",
+                streamingMedian * MIN_FIRST_PARSE_SPEEDUP <= reflectiveMedian);
+    }
+
+    @Test
+    public void steadyStateDecode_isNotSlower() throws IOException {
+        String forecast = envelope(read("forecast", "Moscow"));
+        Gson gson = new Gson();
+        TypeAdapter<ApiResponse<ForecastData>> streaming = forecastAdapter();
+        for (int i = 0; i < WARMUP; i++) {
+            gson.fromJson(forecast, FORECAST_TYPE);
+            streaming.read(new JsonReader(new StringReader(forecast)));
+        }
+
+        int reflectiveDays = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ApiResponse<ForecastData> result = gson.fromJson(forecast, FORECAST_TYPE);
+            reflectiveDays += result.getData().getDayCount();
+        }
+        long reflectiveSteady = (System.nanoTime() - start) / ITERATIONS;
+
+        int streamingDays = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            streamingDays += streaming.read(new JsonReader(new StringReader(forecast))).getData().getDayCount();
+        }
+        long streamingSteady = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println("Forecast decode, steady state: reflective " + reflectiveSteady
+                + " ns/op, streaming " + streamingSteady + " ns/op");
+        // Результат используется, иначе JIT мог бы выбросить разбор
+        assertEquals(reflectiveDays, streamingDays);
+        // После прогрева оба пути близки (~1.1x в пользу потокового); допуск на шум машины
+        assertTrue("steady state: reflective " + reflectiveSteady + " ns, streaming " + streamingSteady + " ns",
+                streamingSteady <= reflectiveSteady * STEADY_STATE_TOLERANCE);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static TypeAdapter<ApiResponse<CurrentWeather>> currentAdapter() {
+        return WeatherTypeAdapters.apiResponse(WeatherTypeAdapters.CURRENT_WEATHER);
+    }
+
+    private static TypeAdapter<ApiResponse<ForecastData>> forecastAdapter() {
+        return WeatherTypeAdapters.apiResponse(WeatherTypeAdapters.FORECAST_DATA);
+    }
+
+    private static String read(String kind, String city) throws IOException {
+        File file = new File(new File(DATA_DIR, kind), city + ".json");
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    // Тот же конверт, что формирует create_response на сервере
+    private static String envelope(String data) {
+        return "{\"data\":" + data + ",\"message\":\"ok\",\"status\":\"success\","
+                + "\"timestamp\":\"2025-11-29T14:00:00\"}";
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.weatherforecast.data.cache;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+    @Test
+    public void addedKeys_areAlwaysReported() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        Random random = new Random(42);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            filter.add(keys[i]);
+        }
+        for (long key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+    }
+
+    @Test
+    public void falsePositiveRate_staysNearConfigured() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.add(key);
+        }
+        int falsePositives = 0;
+        for (long key = 1_000_000; key < 1_100_000; key++) {
+            if (filter.mightContain(key)) falsePositives++;
+        }
+        // 1% от 100 000 с запасом на разброс
+        assertTrue("false positives: " + falsePositives, falsePositives < 2_000);
+    }
+
+    @Test
+    public void clear_forgetsKeys() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add(7);
+        filter.clear();
+        assertFalse(filter.mightContain(7));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.weatherforecast.data.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiskCacheTest {
+    private static final int MAGIC = 0x57464331;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void written_entry_isReadBack() throws Exception {
+        DiskCache cache = new DiskCache(folder.getRoot(), new Gson());
+        cache.writeAsync("current", "55.75,37.61", Collections.singletonMap("city", "Moscow"));
+        File file = new File(folder.getRoot(), "current_55.75_37.61");
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!file.exists() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Map<?, ?> value = cache.read("current", "55.75,37.61", Map.class, 60_000);
+        assertEquals("Moscow", value.get("city"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void hugeLength_dropsEntryInsteadOfAllocating() throws IOException {
+        File file = new File(folder.getRoot(), "current_1_2");
+        // Заголовок цел, но длина данных обещает почти 2 ГБ
+        writeHeader(file, Integer.MAX_VALUE, new byte[16]);
+        DiskCache cache = new DiskCache(folder.getRoot(), new Gson());
+
+        assertNull(cache.read("current", "1,2", Map.class, 60_000));
+        assertEquals(1, cache.getCorrupted());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void negativeOrTruncatedLength_dropsEntry() throws IOException {
+        DiskCache cache = new DiskCache(folder.getRoot(), new Gson());
+        File negative = new File(folder.getRoot(), "current_3_4");
+        writeHeader(negative, -1, new byte[0]);
+        File truncated = new File(folder.getRoot(), "current_5_6");
+        writeHeader(truncated, 100, new byte[10]);
+
+        assertNull(cache.read("current", "3,4", Map.class, 60_000));
+        assertNull(cache.read("current", "5,6", Map.class, 60_000));
+        assertEquals(2, cache.getCorrupted());
+        assertTrue(!negative.exists() && !truncated.exists());
+    }
+
+    private static void writeHeader(File file, int length, byte[] payload) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(0);
+            out.writeInt(length);
+            out.write(payload);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.weatherforecast.data.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NegativeCacheTest {
+    private static final long TTL_MILLIS = 1_000;
+
+    @Test
+    public void rejection_appliesToExactCoordinatesOnly() {
+        NegativeCache cache = new NegativeCache(100, TTL_MILLIS, true);
+        cache.put(55.75, 37.61, 404);
+
+        assertEquals(404, cache.get(55.75, 37.61));
+        // Та же ячейка 0.01°, но другая точка
+        assertEquals(0, cache.get(55.751, 37.612));
+        assertEquals(0, cache.get(37.61, 55.75));
+    }
+
+    @Test
+    public void rotation_keepsEntriesYoungerThanTtl() throws InterruptedException {
+        NegativeCache cache = new NegativeCache(1_000, TTL_MILLIS, true);
+        Thread.sleep(TTL_MILLIS - 150);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i * 0.1, i * 0.2, 404);
+        }
+        Thread.sleep(250);
+        // Эта запись поворачивает фильтры: прежние переходят в старший
+        cache.put(-10.0, -20.0, 400);
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(404, cache.get(i * 0.1, i * 0.2));
+        }
+        assertEquals(400, cache.get(-10.0, -20.0));
+    }
+
+    @Test
+    public void withoutBloomFilter_behavesTheSame() {
+        NegativeCache cache = new NegativeCache(100, TTL_MILLIS, false);
+        cache.put(10.0, 20.0, 400);
+        assertEquals(400, cache.get(10.0, 20.0));
+        assertEquals(0, cache.get(10.0, 20.01));
+    }
+
+    @Test
+    public void removeAndClear_dropRejections() {
+        NegativeCache cache = new NegativeCache(100, TTL_MILLIS, true);
+        cache.put(1.0, 2.0, 404);
+        cache.put(3.0, 4.0, 404);
+        cache.remove(1.0, 2.0);
+        assertEquals(0, cache.get(1.0, 2.0));
+        assertEquals(404, cache.get(3.0, 4.0));
+        cache.clear();
+        assertEquals(0, cache.get(3.0, 4.0));
+    }
+
+    @Test
+    public void entries_expireAfterTtl() throws InterruptedException {
+        NegativeCache cache = new NegativeCache(100, 100, true);
+        cache.put(1.0, 2.0, 404);
+        Thread.sleep(150);
+        assertEquals(0, cache.get(1.0, 2.0));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.weatherforecast.data.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class WeatherCacheTest {
+    private static final long TTL_MILLIS = 1_000;
+    private static final long MAX_STALE_MILLIS = 2_000;
+
+    @Test
+    public void putWithStoredAt_keepsOriginalAge() {
+        WeatherCache<String> cache = new WeatherCache<>(10, TTL_MILLIS, MAX_STALE_MILLIS);
+        long now = System.currentTimeMillis();
+        cache.put(1, "fresh", now - TTL_MILLIS / 2);
+        cache.put(2, "stale", now - TTL_MILLIS - 100);
+        cache.put(3, "expired", now - TTL_MILLIS - MAX_STALE_MILLIS - 100);
+
+        assertEquals("fresh", cache.get(1));
+        // Запись с диска не омолаживается: устаревшая остаётся устаревшей
+        assertNull(cache.get(2));
+        assertEquals("stale", cache.getStale(2));
+        assertNull(cache.peek(3));
+    }
+
+    @Test
+    public void put_storesAsFresh() {
+        WeatherCache<String> cache = new WeatherCache<>(10, TTL_MILLIS, MAX_STALE_MILLIS);
+        cache.put(1, "value");
+
+        assertEquals("value", cache.get(1));
+        assertNull(cache.getStale(1));
+        assertEquals(TTL_MILLIS, cache.getTtlMillis());
+        assertEquals(TTL_MILLIS + MAX_STALE_MILLIS, cache.getMaxAgeMillis());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.weatherforecast.data.location;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LocationIndexTest {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Test
+    public void nearest_matchesBruteForceHaversine() {
+        Random random = new Random(7);
+        int size = 5_000;
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        for (int i = 0; i < size; i++) {
+            // Равномерно по сфере, включая полюса и 180-й меридиан
+            lats[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+        LocationIndex index = new LocationIndex(lats, lons);
+
+        for (int q = 0; q < 2_000; q++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = random.nextDouble() * 360 - 180;
+            double maxKm = q % 2 == 0 ? 20_000 : 200;
+
+            int expected = bruteForce(lats, lons, lat, lon, maxKm);
+            int position = index.nearest(lat, lon, maxKm);
+            if (expected < 0) {
+                assertEquals(-1, position);
+                continue;
+            }
+            int actual = index.catalogIndex(position);
+            // При равных расстояниях годится любая из точек
+            assertEquals(haversine(lat, lon, lats[expected], lons[expected]),
+                    haversine(lat, lon, lats[actual], lons[actual]), 1e-6);
+            assertEquals(lats[actual], index.latitude(position, Double.NaN), 0);
+            assertEquals(lons[actual], index.longitude(position, Double.NaN), 0);
+        }
+    }
+
+    @Test
+    public void antimeridianAndPoles_findTheClosePoint() {
+        double[] lats = {0, 0, 89.9, -45};
+        double[] lons = {179.9, 0, 10, 90};
+        LocationIndex index = new LocationIndex(lats, lons);
+
+        assertEquals(0, index.catalogIndex(index.nearest(0, -179.9, 50)));
+        assertEquals(2, index.catalogIndex(index.nearest(89.95, -170, 50)));
+    }
+
+    @Test
+    public void farQuery_returnsFallback() {
+        LocationIndex index = new LocationIndex(new double[]{55.75}, new double[]{37.62});
+        int position = index.nearest(59.94, 30.31, 50);
+        assertEquals(-1, position);
+        assertEquals(59.94, index.latitude(position, 59.94), 0);
+        assertEquals(30.31, index.longitude(position, 30.31), 0);
+    }
+
+    @Test
+    public void emptyIndex_findsNothing() {
+        assertEquals(0, LocationIndex.EMPTY.size());
+        assertEquals(-1, LocationIndex.EMPTY.nearest(0, 0, 20_000));
+    }
+
+    @Test
+    public void catalogArrays_areNotModified() {
+        double[] lats = {3, 1, 2};
+        double[] lons = {30, 10, 20};
+        new LocationIndex(lats, lons);
+        assertEquals(3, lats[0], 0);
+        assertEquals(10, lons[1], 0);
+    }
+
+    private static int bruteForce(double[] lats, double[] lons, double lat, double lon, double maxKm) {
+        int best = -1;
+        double bestKm = Double.MAX_VALUE;
+        for (int i = 0; i < lats.length; i++) {
+            double km = haversine(lat, lon, lats[i], lons[i]);
+            if (km <= maxKm && km < bestKm) {
+                best = i;
+                bestKm = km;
+            }
+        }
+        return best;
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
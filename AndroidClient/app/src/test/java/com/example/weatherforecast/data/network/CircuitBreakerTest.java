@@ -0,0 +1,184 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+    private static final long OPEN_MILLIS = 100;
+
+    /**
+     * Отвечает вместо сервера: код следующего ответа или исключение
+     */
+    private static final class FakeServer implements Interceptor {
+        volatile int code = 200;
+        volatile RuntimeException crash;
+        volatile CountDownLatch hold;
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            calls.incrementAndGet();
+            CountDownLatch latch = hold;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (crash != null) throw crash;
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(code)
+                    .message("")
+                    .body(ResponseBody.create("", null))
+                    .build();
+        }
+    }
+
+    private CircuitBreaker breaker;
+    private FakeServer server;
+    private OkHttpClient client;
+    private final List<String> transitions = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker(OPEN_MILLIS, TimeUnit.MILLISECONDS);
+        breaker.setListener((from, to) -> {
+            synchronized (transitions) {
+                transitions.add(from + "->" + to);
+            }
+        });
+        server = new FakeServer();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(server)
+                .build();
+    }
+
+    @Test
+    public void fewFailures_keepBreakerClosed() throws IOException {
+        server.code = 500;
+        for (int i = 0; i < 5; i++) {
+            call();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void failureRateThreshold_opensAndRejectsWithoutCallingServer() throws IOException {
+        for (int i = 0; i < 3; i++) call();
+        server.code = 503;
+        for (int i = 0; i < 3; i++) call();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        try {
+            call();
+            fail("Open breaker must reject the call");
+        } catch (CircuitOpenException expected) {
+        }
+        assertEquals(6, server.calls.get());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void successfulProbe_closesBreaker() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+        server.code = 200;
+        call();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    public void failedProbe_reopensBreaker() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+        call();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), transitions);
+    }
+
+    @Test
+    public void onlyOneProbeAtATime() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+        server.code = 200;
+        server.hold = new CountDownLatch(1);
+        Thread probe = new Thread(() -> {
+            try {
+                call();
+            } catch (IOException ignored) {
+            }
+        });
+        probe.start();
+        while (server.calls.get() < 7) {
+            Thread.sleep(5);
+        }
+
+        try {
+            call();
+            fail("Second call must be rejected while the probe is in flight");
+        } catch (CircuitOpenException expected) {
+        }
+        server.hold.countDown();
+        probe.join();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void runtimeExceptionInProbe_releasesProbe() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+        server.crash = new IllegalStateException("bug");
+        try {
+            call();
+            fail("Exception must propagate");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Следующий запрос становится пробой, а не отклоняется
+        server.crash = null;
+        server.code = 200;
+        call();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void open() throws IOException {
+        server.code = 500;
+        for (int i = 0; i < 6; i++) call();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call() throws IOException {
+        Request request = new Request.Builder().url("http://weather.test/weather/current").build();
+        try (Response ignored = client.newCall(request).execute()) {
+            // Код ответа учитывает сам предохранитель
+        }
+    }
+}
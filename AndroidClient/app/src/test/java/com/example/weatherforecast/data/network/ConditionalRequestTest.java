@@ -0,0 +1,165 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * HTTP-кэш OkHttp и условные запросы против сервера, который ведёт себя как
+ * create_conditional_response в Server/app.py: ETag по данным, "-mp" у MessagePack,
+ * Cache-Control: no-cache и Vary: Accept
+ */
+public class ConditionalRequestTest {
+    private static final String PATH = "/weather/current?lat=55.7558&lon=37.6173";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private FakeWeatherServer dispatcher;
+    private Cache cache;
+
+    /**
+     * Отвечает 304, если If-None-Match совпадает с ETag текущего представления
+     */
+    private static final class FakeWeatherServer extends Dispatcher {
+        volatile String version = "v1";
+        final List<Integer> codes = new CopyOnWriteArrayList<>();
+        final List<String> validators = new CopyOnWriteArrayList<>();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String accept = request.getHeader("Accept");
+            boolean messagePack = accept != null && accept.startsWith(MessagePackConverterFactory.MEDIA_TYPE);
+            String etag = "\"" + version + (messagePack ? "-mp" : "") + "\"";
+            String validator = request.getHeader("If-None-Match");
+            validators.add(String.valueOf(validator));
+
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", etag)
+                    .setHeader("Cache-Control", "no-cache")
+                    .setHeader("Vary", "Accept");
+            if (etag.equals(validator)) {
+                codes.add(304);
+                return response.setResponseCode(304);
+            }
+            codes.add(200);
+            return response
+                    .setHeader("Content-Type", messagePack ? MessagePackConverterFactory.MEDIA_TYPE : "application/json")
+                    .setBody((messagePack ? "mp:" : "json:") + version);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        dispatcher = new FakeWeatherServer();
+        server.setDispatcher(dispatcher);
+        server.start();
+        cache = new Cache(folder.newFolder("http_cache"), 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void unchangedData_isRevalidatedWith304() throws IOException {
+        OkHttpClient client = client(false);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("json:v1", get(client));
+        }
+
+        // Одно полное тело, дальше только 304 без тела
+        assertEquals(Arrays.asList(200, 304, 304, 304, 304), dispatcher.codes);
+        assertEquals("null", dispatcher.validators.get(0));
+        assertEquals("\"v1\"", dispatcher.validators.get(1));
+        assertEquals(5, cache.networkCount());
+        assertEquals(4, cache.hitCount());
+    }
+
+    @Test
+    public void changedData_returnsFullResponse() throws IOException {
+        OkHttpClient client = client(false);
+        assertEquals("json:v1", get(client));
+        dispatcher.version = "v2";
+        assertEquals("json:v2", get(client));
+        assertEquals("json:v2", get(client));
+
+        assertEquals(Arrays.asList(200, 200, 304), dispatcher.codes);
+    }
+
+    @Test
+    public void messagePackVariant_hasItsOwnEtag() throws IOException {
+        OkHttpClient messagePack = client(true);
+        assertEquals("mp:v1", get(messagePack));
+        try (Response response = messagePack.newCall(request()).execute()) {
+            assertEquals("mp:v1", response.body().string());
+            assertEquals(304, response.networkResponse().code());
+            assertEquals("\"v1-mp\"", response.header("ETag"));
+        }
+        assertEquals("\"v1-mp\"", dispatcher.validators.get(1));
+
+        // Vary: Accept - JSON-запрос не берёт валидатор MessagePack и получает своё тело
+        OkHttpClient json = client(false);
+        try (Response response = json.newCall(request()).execute()) {
+            assertEquals("json:v1", response.body().string());
+            assertEquals(200, response.networkResponse().code());
+            assertNull(response.request().header("If-None-Match"));
+        }
+        assertEquals("null", dispatcher.validators.get(2));
+        assertEquals(Arrays.asList(200, 304, 200), dispatcher.codes);
+    }
+
+    @Test
+    public void notModifiedResponse_keepsCachedBody() throws IOException {
+        OkHttpClient client = client(false);
+        get(client);
+        try (Response response = client.newCall(request()).execute()) {
+            assertNotNull(response.cacheResponse());
+            assertEquals(304, response.networkResponse().code());
+            assertEquals(200, response.code());
+            assertEquals("json:v1", response.body().string());
+        }
+    }
+
+    private OkHttpClient client(boolean messagePack) {
+        return new OkHttpClient.Builder()
+                .cache(cache)
+                .addInterceptor(new WireFormatInterceptor(messagePack))
+                .build();
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url(PATH)).build();
+    }
+
+    private String get(OkHttpClient client) throws IOException {
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(200, response.code());
+            return response.body().string();
+        }
+    }
+}
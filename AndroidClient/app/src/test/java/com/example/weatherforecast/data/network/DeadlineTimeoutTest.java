@@ -0,0 +1,154 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+/**
+ * Зависший сервер должен доходить до предохранителя и пула реплик как сбой, а не как отмена
+ */
+public class DeadlineTimeoutTest {
+    interface Api {
+        @GET("weather/current")
+        Call<ResponseBody> current();
+    }
+
+    private MockWebServer server;
+    private CircuitBreaker breaker;
+    private EndpointPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        breaker = new CircuitBreaker();
+        pool = new EndpointPool(Collections.singletonList(server.url("/").toString()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void attemptTimeout_staysBelowRemainingDeadline() {
+        assertEquals(10_000, AdaptiveTimeoutInterceptor.attemptTimeoutMillis(10_000, Long.MAX_VALUE));
+        assertEquals(9_500, AdaptiveTimeoutInterceptor.attemptTimeoutMillis(10_000,
+                TimeUnit.SECONDS.toNanos(10)));
+        assertEquals(2_000, AdaptiveTimeoutInterceptor.attemptTimeoutMillis(2_000,
+                TimeUnit.SECONDS.toNanos(10)));
+        // 0 у OkHttp означает "без таймаута"
+        assertEquals(1, AdaptiveTimeoutInterceptor.attemptTimeoutMillis(10_000,
+                TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void hungServer_failsAsTimeoutAndOpensBreaker() {
+        Api api = api(new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(pool)
+                .addInterceptor(new AdaptiveTimeoutInterceptor())
+                .callTimeout(10, TimeUnit.SECONDS)
+                .build());
+
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            Call<ResponseBody> call = api.current();
+            Deadline.after(600).applyTo(call);
+            try {
+                call.execute();
+                fail("Hung server must not produce a response");
+            } catch (IOException e) {
+                // Таймаут попытки срабатывает раньше таймаута вызова
+                assertTrue(e instanceof SocketTimeoutException);
+                assertFalse(call.isCanceled());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, pool.getEjectionCount());
+    }
+
+    @Test
+    public void expiredDeadline_countsAsFailure() {
+        // Без адаптивного таймаута попытку прерывает сам срок вызова
+        Api api = api(new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(pool)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build());
+
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            Call<ResponseBody> call = api.current();
+            Deadline.after(200).applyTo(call);
+            try {
+                call.execute();
+                fail("Hung server must not produce a response");
+            } catch (IOException expected) {
+                assertTrue(call.isCanceled());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, pool.getEjectionCount());
+    }
+
+    @Test
+    public void callerCancel_isNotCountedAsFailure() throws Exception {
+        Api api = api(new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(pool)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build());
+
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            Call<ResponseBody> call = api.current();
+            Deadline.after(10_000).applyTo(call);
+            Thread canceller = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                call.cancel();
+            });
+            canceller.start();
+            try {
+                call.execute();
+                fail("Cancelled call must not produce a response");
+            } catch (IOException expected) {
+                assertTrue(call.isCanceled());
+            }
+            canceller.join();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, pool.getEjectionCount());
+    }
+
+    private static Api api(OkHttpClient client) {
+        return new Retrofit.Builder()
+                .baseUrl(RetrofitClient.BASE_URL)
+                .client(client)
+                .build()
+                .create(Api.class);
+    }
+}
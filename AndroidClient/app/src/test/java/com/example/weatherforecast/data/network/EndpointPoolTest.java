@@ -0,0 +1,203 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * EndpointPool перед настоящими серверами (MockWebServer) с разной задержкой и ошибками
+ */
+public class EndpointPoolTest {
+    private MockWebServer fast;
+    private MockWebServer slow;
+
+    /**
+     * Отвечает на любой запрос одинаково
+     */
+    private static final class Always extends Dispatcher {
+        volatile int code;
+        final long delayMillis;
+
+        Always(int code, long delayMillis) {
+            this.code = code;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            return new MockResponse()
+                    .setResponseCode(code)
+                    .setBody("{}")
+                    .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Условные ответы как у сервера: одинаковый ETag на всех репликах, 304 при совпадении
+     */
+    private static final class Conditional extends Dispatcher {
+        final AtomicInteger fullResponses = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", "\"v1\"")
+                    .setHeader("Cache-Control", "no-cache");
+            if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+                return response.setResponseCode(304);
+            }
+            fullResponses.incrementAndGet();
+            return response.setBody("{}");
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        fast = new MockWebServer();
+        fast.setDispatcher(new Always(200, 0));
+        fast.start();
+        slow = new MockWebServer();
+        slow.setDispatcher(new Always(200, 300));
+        slow.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fast.shutdown();
+        slow.shutdown();
+    }
+
+    @Test
+    public void requests_goToFasterReplica() throws IOException {
+        // Первый запрос холодной JVM медленный и исказил бы EWMA быстрой реплики
+        try (Response warmUp = new OkHttpClient().newCall(
+                new Request.Builder().url(fast.url("/status")).build()).execute()) {
+            assertEquals(200, warmUp.code());
+        }
+        EndpointPool pool = new EndpointPool(Arrays.asList(fast.url("/").toString(), slow.url("/").toString()));
+        OkHttpClient client = client(pool);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(200, execute(client));
+        }
+        int fastCount = fast.getRequestCount() - 1;
+        assertTrue("fast replica got " + fastCount, fastCount >= 35);
+        assertEquals(40, fastCount + slow.getRequestCount());
+    }
+
+    @Test
+    public void unreachableReplica_isAvoided() throws IOException {
+        MockWebServer dead = new MockWebServer();
+        dead.start();
+        String deadUrl = dead.url("/").toString();
+        dead.shutdown();
+
+        EndpointPool pool = new EndpointPool(Arrays.asList(deadUrl, fast.url("/").toString()));
+        OkHttpClient client = client(pool);
+        int failures = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                execute(client);
+            } catch (IOException e) {
+                failures++;
+            }
+        }
+        // Один отказ даёт штраф к задержке, и реплика проигрывает сравнение
+        assertTrue("failures: " + failures, failures <= 1);
+        assertEquals(20 - failures, fast.getRequestCount());
+    }
+
+    @Test
+    public void consecutiveServerErrors_ejectReplicaUntilSuccess() throws IOException {
+        Always dispatcher = new Always(503, 0);
+        fast.setDispatcher(dispatcher);
+        EndpointPool pool = new EndpointPool(Collections.singletonList(fast.url("/").toString()));
+        OkHttpClient client = client(pool);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(503, execute(client));
+        }
+        assertEquals(0, pool.getEjectionCount());
+        assertEquals(503, execute(client));
+        assertEquals(1, pool.getEjectionCount());
+        assertTrue(pool.describeReplicas().get(0).endsWith("ejected"));
+
+        // Исключены все: запрос всё равно идёт, и успех возвращает реплику
+        dispatcher.code = 200;
+        assertEquals(200, execute(client));
+        assertFalse(pool.describeReplicas().get(0).endsWith("ejected"));
+    }
+
+    @Test
+    public void otherHosts_areNotRewritten() throws IOException {
+        EndpointPool pool = new EndpointPool(Collections.singletonList(fast.url("/").toString()));
+        Request request = new Request.Builder().url(slow.url("/status")).build();
+        try (Response response = client(pool).newCall(request).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(0, fast.getRequestCount());
+        assertEquals(1, slow.getRequestCount());
+    }
+
+    @Test
+    public void httpCache_costsAtMostOneFullResponsePerReplica() throws IOException {
+        // Кэш OkHttp ниже пула и хранит записи по адресу реплики (см. EndpointPool)
+        Conditional first = new Conditional();
+        Conditional second = new Conditional();
+        fast.setDispatcher(first);
+        slow.setDispatcher(second);
+        EndpointPool pool = new EndpointPool(Arrays.asList(fast.url("/").toString(), slow.url("/").toString()));
+        Cache cache = new Cache(folder.newFolder("http_cache"), 1024 * 1024);
+        OkHttpClient client = client(pool).newBuilder().cache(cache).build();
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(200, execute(client));
+        }
+        cache.close();
+
+        assertTrue(first.fullResponses.get() <= 1 && second.fullResponses.get() <= 1);
+        int replicasUsed = (fast.getRequestCount() > 0 ? 1 : 0) + (slow.getRequestCount() > 0 ? 1 : 0);
+        assertEquals(replicasUsed, first.fullResponses.get() + second.fullResponses.get());
+        assertEquals(30 - replicasUsed, cache.hitCount());
+    }
+
+    private static OkHttpClient client(EndpointPool pool) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(pool)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    // Запрос к адресу-заглушке, который пул подменяет на реплику
+    private static int execute(OkHttpClient client) throws IOException {
+        Request request = new Request.Builder()
+                .url(RetrofitClient.BASE_URL + "weather/current?lat=55.75&lon=37.62")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ServerSocketFactory;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+/**
+ * HedgedCall поверх настоящего Retrofit/OkHttp и MockWebServer
+ */
+public class HedgedCallTest {
+    private static final long HEDGE_DELAY_MILLIS = 50;
+    private static final long SLOW_MILLIS = 2_000;
+    // Замер хвоста: каждый STALL_EVERY-й ответ сервера задерживается на STALL_MILLIS
+    private static final int STALL_EVERY = 20;
+    private static final long STALL_MILLIS = 500;
+    private static final int MEASURED_CALLS = 200;
+
+    interface Api {
+        @GET("weather/current")
+        Call<ResponseBody> current();
+    }
+
+    /**
+     * Ждёт единственного результата вызова
+     */
+    private static final class Result implements Callback<ResponseBody> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile String body;
+        volatile Throwable failure;
+        volatile int results;
+
+        @Override
+        public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            try {
+                body = response.body().string();
+            } catch (IOException e) {
+                failure = e;
+            }
+            results++;
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Call<ResponseBody> call, Throwable t) {
+            failure = t;
+            results++;
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("No result", latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private MockWebServer server;
+    private Api api;
+    private HedgingPolicy policy;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .build()
+                .create(Api.class);
+        policy = new HedgingPolicy(0.95);
+        // Перцентиль по недавним задержкам задаёт паузу перед копией
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(HEDGE_DELAY_MILLIS);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void slowPrimary_isOvertakenByHedge() throws Exception {
+        server.enqueue(slow("primary"));
+        server.enqueue(new MockResponse().setBody("hedge"));
+
+        long start = System.nanoTime();
+        Result result = new Result();
+        policy.wrap(api.current()).enqueue(result);
+        result.await();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("hedge", result.body);
+        assertTrue("took " + elapsed + " ms", elapsed < SLOW_MILLIS);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, policy.getHedgedCount());
+        assertEquals(1, policy.getHedgeWinCount());
+        Thread.sleep(100);
+        assertEquals(1, result.results);
+    }
+
+    @Test
+    public void fastPrimary_isNotHedged() throws Exception {
+        // Первый запрос холодной JVM дольше 50 мс; порог здесь с запасом
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(SLOW_MILLIS);
+        }
+        server.enqueue(new MockResponse().setBody("primary"));
+
+        Result result = new Result();
+        policy.wrap(api.current()).enqueue(result);
+        result.await();
+        Thread.sleep(policy.getHedgeDelayMillis() + 100);
+
+        assertEquals("primary", result.body);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, policy.getHedgedCount());
+    }
+
+    @Test
+    public void hedges_areLimitedByBudget() throws Exception {
+        // Запас 2 жетона и 0.05 на запрос: третий медленный запрос без копии
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(slow("primary"));
+            server.enqueue(new MockResponse().setBody("hedge"));
+            Result result = new Result();
+            policy.wrap(api.current()).enqueue(result);
+            result.await();
+            assertEquals("hedge", result.body);
+        }
+        server.enqueue(new MockResponse().setBody("primary").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        Result result = new Result();
+        policy.wrap(api.current()).enqueue(result);
+        result.await();
+
+        assertEquals("primary", result.body);
+        assertEquals(2, policy.getHedgedCount());
+        assertEquals(1, policy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void cancel_stopsBothAttemptsAndReportsOnce() throws Exception {
+        server.enqueue(slow("primary"));
+        server.enqueue(slow("hedge"));
+
+        Result result = new Result();
+        Call<ResponseBody> call = policy.wrap(api.current());
+        call.enqueue(result);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRequestCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, server.getRequestCount());
+        call.cancel();
+        result.await();
+
+        assertTrue(call.isCanceled());
+        assertNull(result.body);
+        assertNotNull(result.failure);
+        Thread.sleep(100);
+        assertEquals(1, result.results);
+    }
+
+    @Test
+    public void hedgeWin_recordsLatencyOfTheHedgeItself() throws Exception {
+        List<Long> recorded = new CopyOnWriteArrayList<>();
+        HedgingPolicy recording = new HedgingPolicy(0.95) {
+            @Override
+            void recordLatency(long millis) {
+                recorded.add(millis);
+                super.recordLatency(millis);
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            recording.recordLatency(HEDGE_DELAY_MILLIS);
+        }
+        recorded.clear();
+        server.enqueue(slow("primary"));
+        server.enqueue(new MockResponse().setBody("hedge"));
+
+        long start = System.nanoTime();
+        Result result = new Result();
+        recording.wrap(api.current()).enqueue(result);
+        result.await();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("hedge", result.body);
+        assertEquals(1, recorded.size());
+        // Копия ушла не раньше чем через HEDGE_DELAY_MILLIS после исходного запроса
+        assertTrue("recorded " + recorded.get(0) + " ms of " + elapsed,
+                recorded.get(0) <= elapsed - HEDGE_DELAY_MILLIS);
+    }
+
+    /**
+     * Воспроизводимый замер хвоста задержек: один и тот же сервер, где 1 из STALL_EVERY
+     * ответов задерживается на STALL_MILLIS, с дублированием и без. Цифры печатаются
+     */
+    @Test
+    public void p99_withHedging_staysBelowServerStalls() throws Exception {
+        // Без Nagle на сервере обычный ответ приходит за миллисекунды, а не за 40 мс
+        // задержанного ACK, и хвост создают только задержки Stalling
+        server.shutdown();
+        server = new MockWebServer();
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .build()
+                .create(Api.class);
+        Stalling stalling = new Stalling();
+        server.setDispatcher(stalling);
+
+        long[] plain = new long[MEASURED_CALLS];
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            long start = System.nanoTime();
+            api.current().execute().body().close();
+            plain[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        HedgingPolicy measured = new HedgingPolicy(0.95);
+        // Прогрев без задержек сервера: пока замеров меньше 10, пауза перед копией 1 с
+        stalling.enabled = false;
+        for (int i = 0; i < 20; i++) {
+            Result result = new Result();
+            measured.wrap(api.current()).enqueue(result);
+            result.await();
+        }
+        stalling.enabled = true;
+        int before = server.getRequestCount();
+        long[] hedged = new long[MEASURED_CALLS];
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            long start = System.nanoTime();
+            Result result = new Result();
+            measured.wrap(api.current()).enqueue(result);
+            result.await();
+            assertNull(result.failure);
+            hedged[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        int extra = server.getRequestCount() - before - MEASURED_CALLS;
+
+        long plainP99 = p99(plain);
+        long hedgedP99 = p99(hedged);
+        System.out.println("HedgedCall p99: plain " + plainP99 + " ms, hedged " + hedgedP99
+                + " ms, extra requests " + extra + "/" + MEASURED_CALLS
+                + ", hedge wins " + measured.getHedgeWinCount());
+        assertTrue("plain p99 " + plainP99 + " ms", plainP99 >= STALL_MILLIS);
+        assertTrue("hedged p99 " + hedgedP99 + " ms", hedgedP99 < STALL_MILLIS / 2);
+        // Бюджет: 5% от запросов плюс начальный запас
+        assertTrue("extra requests " + extra, extra <= MEASURED_CALLS / 20 + 3);
+    }
+
+    /**
+     * Сервер, у которого каждый STALL_EVERY-й ответ зависает
+     */
+    private static final class Stalling extends Dispatcher {
+        private final AtomicInteger served = new AtomicInteger();
+        volatile boolean enabled = true;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            MockResponse response = new MockResponse().setBody("{}");
+            if (enabled && served.incrementAndGet() % STALL_EVERY == 0) {
+                response.setHeadersDelay(STALL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return response;
+        }
+    }
+
+    private static final class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static long p99(long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+
+    private static MockResponse slow(String body) {
+        return new MockResponse().setBody(body).setHeadersDelay(SLOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyWindowTest {
+    @Test
+    public void empty_returnsMinusOne() {
+        LatencyWindow window = new LatencyWindow(10);
+        assertEquals(0, window.size());
+        assertEquals(-1, window.percentile(0.5));
+    }
+
+    @Test
+    public void percentiles_useNearestRank() {
+        LatencyWindow window = new LatencyWindow(100);
+        // Порядок записи не важен
+        for (int i = 100; i >= 1; i--) {
+            window.record(i);
+        }
+        assertEquals(1, window.percentile(0));
+        assertEquals(50, window.percentile(0.5));
+        assertEquals(95, window.percentile(0.95));
+        assertEquals(99, window.percentile(0.99));
+        assertEquals(100, window.percentile(1));
+    }
+
+    @Test
+    public void oldSamples_leaveTheWindow() {
+        LatencyWindow window = new LatencyWindow(5);
+        for (int i = 0; i < 5; i++) {
+            window.record(10_000);
+        }
+        for (int i = 0; i < 5; i++) {
+            window.record(20);
+        }
+        assertEquals(5, window.size());
+        assertEquals(20, window.percentile(1));
+    }
+
+    @Test
+    public void partialWindow_ignoresUnusedSlots() {
+        LatencyWindow window = new LatencyWindow(50);
+        window.record(300);
+        window.record(100);
+        window.record(200);
+        assertEquals(3, window.size());
+        assertEquals(100, window.percentile(0));
+        assertEquals(200, window.percentile(0.5));
+        assertEquals(300, window.percentile(0.99));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.example.weatherforecast.data.model.CurrentWeather;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * LiveWeatherStream против MockWebServer: разбор событий, Last-Event-ID и переподключения
+ */
+public class LiveWeatherStreamTest {
+    private static final long MIN_RETRY_MILLIS = 100;
+
+    private MockWebServer server;
+    private LiveWeatherStream stream;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    private final LiveWeatherStream.Listener listener = new LiveWeatherStream.Listener() {
+        @Override
+        public void onCurrentWeather(double lat, double lon, @NonNull CurrentWeather weather) {
+            received.add("current " + lat + "," + lon + " " + weather.getCity() + " " + weather.getTemperature());
+        }
+
+        @Override
+        public void onInvalidate(double lat, double lon) {
+            received.add("invalidate " + lat + "," + lon);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        stream = new LiveWeatherStream(new OkHttpClient(), new Gson(), listener,
+                server.url("/").toString(), MIN_RETRY_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        stream.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void events_areParsedAndResumedFromLastDeliveredId() throws Exception {
+        // Второе событие обрывается до пустой строки: оно не доставлено, и его id не в счёт
+        server.enqueue(sse(": keep-alive\n"
+                + "retry: 100\n"
+                + "id: a1-1\n"
+                + "event: current\n"
+                + "data: {\"lat\":55.75,\"lon\":37.61,\n"
+                + "data: \"current\":{\"city\":\"Moscow\",\"temperature\":-3.0}}\n"
+                + "\n"
+                + "id: a1-2\n"
+                + "event: current\n"
+                + "data: {\"lat\":55.75,\"lon\":37.61,\"current\":{\"city\":\"Moscow\",\"temperature\":-4.0}}\n"));
+        // Сервер перезапущен: id другой эпохи, и он просит сбросить кэш
+        server.enqueue(sse("retry: 100\n"
+                + "id: b2-7\n"
+                + "event: invalidate\n"
+                + "data: {\"lat\":55.75,\"lon\":37.61}\n"
+                + "\n"));
+
+        stream.subscribe(Collections.singletonList(new double[] {55.75, 37.61}));
+
+        assertEquals("current 55.75,37.61 Moscow -3.0", received.poll(5, TimeUnit.SECONDS));
+        assertEquals("invalidate 55.75,37.61", received.poll(5, TimeUnit.SECONDS));
+
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/weather/stream?loc=55.75%2C37.61", first.getPath());
+        assertEquals("text/event-stream", first.getHeader("Accept"));
+        assertNull(first.getHeader("Last-Event-ID"));
+        RecordedRequest second = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("a1-1", second.getHeader("Last-Event-ID"));
+        // Следующее переподключение продолжает с id новой эпохи
+        RecordedRequest third = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("b2-7", third.getHeader("Last-Event-ID"));
+
+        assertEquals(2, stream.getEventCount());
+        assertTrue(stream.getReconnectCount() >= 2);
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void zeroRetry_isClampedSoDownServerIsNotHammered() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // Первый ответ просит переподключаться без паузы, дальше сервер лежит
+                if (request.getSequenceNumber() == 0) {
+                    return sse("retry: 0\n\n");
+                }
+                return new MockResponse().setResponseCode(503);
+            }
+        });
+
+        stream.subscribe(Collections.singletonList(new double[] {55.75, 37.61}));
+        Thread.sleep(1_000);
+        stream.stop();
+
+        // Без нижней границы паузы здесь были бы тысячи запросов; с ней пауза растёт от 100 мс
+        int requests = server.getRequestCount();
+        assertTrue("requests: " + requests, requests >= 2 && requests < 20);
+    }
+
+    @Test
+    public void stop_endsReconnects() throws Exception {
+        server.enqueue(sse("retry: 100\n\n"));
+        stream.subscribe(Collections.singletonList(new double[] {55.75, 37.61}));
+        server.takeRequest(5, TimeUnit.SECONDS);
+        stream.stop();
+        // Запрос, отправленный до stop, мог ещё не дойти до сервера
+        Thread.sleep(100);
+        int requests = server.getRequestCount();
+        Thread.sleep(500);
+
+        assertEquals(requests, server.getRequestCount());
+        assertTrue(!stream.isRunning());
+    }
+
+    private static MockResponse sse(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PriorityDispatcher с одним местом: порядок запуска и отмена ожидающего запроса
+ */
+public class PriorityDispatcherTest {
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final List<String> served = new CopyOnWriteArrayList<>();
+
+    private MockWebServer server;
+    private PriorityDispatcher dispatcher;
+    private OkHttpClient client;
+
+    /**
+     * Запоминает результат асинхронного запроса
+     */
+    private static final class Result implements Callback {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile IOException failure;
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            response.close();
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            failure = e;
+            latch.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                served.add(request.getPath());
+                // Запрос /busy держит единственное место, пока тест его не отпустит
+                if ("/busy".equals(request.getPath())) {
+                    unblock.await(10, TimeUnit.SECONDS);
+                }
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+        dispatcher = new PriorityDispatcher(1);
+        client = new OkHttpClient.Builder()
+                .dispatcher(PriorityDispatcher.newOkHttpDispatcher())
+                .addInterceptor(dispatcher)
+                .eventListener(dispatcher.newEventListener())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        unblock.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void freedSlot_goesToHigherClass() throws Exception {
+        Result busy = enqueue("/busy", RequestPriority.INTERACTIVE);
+        awaitServed(1);
+        Result telemetry = enqueue("/telemetry", RequestPriority.TELEMETRY);
+        awaitQueued(RequestPriority.TELEMETRY);
+        Result interactive = enqueue("/interactive", RequestPriority.INTERACTIVE);
+        awaitQueued(RequestPriority.INTERACTIVE);
+
+        unblock.countDown();
+        for (Result result : new Result[]{busy, telemetry, interactive}) {
+            assertTrue(result.latch.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals("/interactive", served.get(1));
+        assertEquals("/telemetry", served.get(2));
+        assertEquals(1, dispatcher.getPreemptedCount());
+    }
+
+    @Test
+    public void cancelledWhileQueued_leavesWithoutWaitingForSlot() throws Exception {
+        enqueue("/busy", RequestPriority.INTERACTIVE);
+        awaitServed(1);
+        Call queued = client.newCall(request("/queued", RequestPriority.PREFETCH));
+        Result result = new Result();
+        queued.enqueue(result);
+        awaitQueued(RequestPriority.PREFETCH);
+
+        queued.cancel();
+
+        // Место всё ещё занято: запрос уходит из очереди по отмене, а не по освобождению
+        assertTrue(result.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(result.failure != null);
+        assertEquals(0, dispatcher.getQueuedCount(RequestPriority.PREFETCH));
+        assertEquals(1, served.size());
+    }
+
+    private Result enqueue(String path, RequestPriority priority) {
+        Result result = new Result();
+        client.newCall(request(path, priority)).enqueue(result);
+        return result;
+    }
+
+    private Request request(String path, RequestPriority priority) {
+        return new Request.Builder()
+                .url(server.url(path))
+                .header(RequestPriority.HEADER, priority.name().toLowerCase(Locale.ROOT))
+                .build();
+    }
+
+    private void awaitServed(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (served.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, served.size());
+    }
+
+    private void awaitQueued(RequestPriority priority) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getQueuedCount(priority) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, dispatcher.getQueuedCount(priority));
+    }
+}
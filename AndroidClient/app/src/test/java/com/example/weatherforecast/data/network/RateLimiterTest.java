@@ -0,0 +1,178 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RateLimiter перед MockWebServer: 2 жетона в секунду, запас 6
+ */
+public class RateLimiterTest {
+    private static final int BURST = 6;
+    private static final long TOKEN_MILLIS = 500;
+
+    private MockWebServer server;
+    private RateLimiter limiter;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        // Без очереди ответов сервер отвечает 200
+        ((QueueDispatcher) server.getDispatcher()).setFailFast(new MockResponse());
+        server.start();
+        limiter = new RateLimiter();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(limiter)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void backgroundRequests_areSpacedByTokenRate() throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < BURST; i++) {
+            assertEquals(200, execute(RequestPriority.PREFETCH));
+        }
+        assertTrue("burst took " + elapsedMillis(start), elapsedMillis(start) < TOKEN_MILLIS);
+
+        // Запас исчерпан: следующие два ждут по жетону
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, execute(RequestPriority.PREFETCH));
+        }
+        long elapsed = elapsedMillis(start);
+        assertTrue("took " + elapsed, elapsed >= 2 * TOKEN_MILLIS - 150);
+        assertEquals(2, limiter.getThrottledCount());
+    }
+
+    @Test
+    public void interactiveRequests_borrowAndBackgroundPays() throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < 2 * BURST; i++) {
+            assertEquals(200, execute(RequestPriority.INTERACTIVE));
+        }
+        // Интерактивные не ждали, хотя взяли вдвое больше запаса
+        assertTrue("took " + elapsedMillis(start), elapsedMillis(start) < TOKEN_MILLIS);
+        assertEquals(0, limiter.getThrottledCount());
+
+        // Долг до -BURST: фоновому ждать ~3.5 с, а срок запроса 1 с - отказ сразу, без запроса
+        OkHttpClient shortDeadline = client.newBuilder().callTimeout(1, TimeUnit.SECONDS).build();
+        long before = System.nanoTime();
+        try {
+            execute(shortDeadline, RequestPriority.PREFETCH);
+            fail("Wait beyond the deadline must fail fast");
+        } catch (RetryAfterException e) {
+            assertTrue("retry after " + e.getRetryAfterMillis(), e.getRetryAfterMillis() > 1_000);
+        }
+        assertTrue("failed after " + elapsedMillis(before), elapsedMillis(before) < 200);
+        assertEquals(2 * BURST, server.getRequestCount());
+    }
+
+    @Test
+    public void retryAfterSeconds_blocksInteractiveAndDelaysBackground() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        assertEquals(429, execute(RequestPriority.PREFETCH));
+        assertEquals(1, limiter.getRetryAfterCount());
+
+        try {
+            execute(RequestPriority.INTERACTIVE);
+            fail("Interactive request must not wait for Retry-After");
+        } catch (RetryAfterException e) {
+            assertTrue(e.getRetryAfterMillis() > 500 && e.getRetryAfterMillis() <= 1_000);
+        }
+
+        long start = System.nanoTime();
+        assertEquals(200, execute(RequestPriority.PREFETCH));
+        assertTrue("waited " + elapsedMillis(start), elapsedMillis(start) >= 500);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void retryAfterHttpDate_isHonoured() throws IOException {
+        // Дата с точностью до секунды: пауза от 2 до 3 секунд
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String date = format.format(new Date(System.currentTimeMillis() + 3_000));
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", date));
+        assertEquals(503, execute(RequestPriority.PREFETCH));
+
+        try {
+            execute(RequestPriority.INTERACTIVE);
+            fail("Interactive request must not wait for Retry-After");
+        } catch (RetryAfterException e) {
+            assertTrue("retry after " + e.getRetryAfterMillis(),
+                    e.getRetryAfterMillis() > 1_000 && e.getRetryAfterMillis() <= 3_000);
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelledWaiter_returnsItsToken() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            execute(RequestPriority.PREFETCH);
+        }
+        // Ждёт жетона ~500 мс и отменяется на середине
+        Call waiting = client.newCall(request(RequestPriority.PREFETCH));
+        Thread waiter = new Thread(() -> {
+            try (Response ignored = waiting.execute()) {
+                fail("Cancelled call must not be sent");
+            } catch (IOException expected) {
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+        waiting.cancel();
+        waiter.join();
+
+        // С возвращённым жетоном ждать ~300 мс, без него ~800
+        long start = System.nanoTime();
+        assertEquals(200, execute(RequestPriority.PREFETCH));
+        long elapsed = elapsedMillis(start);
+        assertTrue("waited " + elapsed, elapsed < 600);
+        assertEquals(BURST + 1, server.getRequestCount());
+    }
+
+    private int execute(RequestPriority priority) throws IOException {
+        return execute(client, priority);
+    }
+
+    private int execute(OkHttpClient client, RequestPriority priority) throws IOException {
+        try (Response response = client.newCall(request(priority)).execute()) {
+            return response.code();
+        }
+    }
+
+    private Request request(RequestPriority priority) {
+        return new Request.Builder()
+                .url(server.url("/weather/current"))
+                .header(RequestPriority.HEADER, priority.name())
+                .build();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetryInterceptorTest {
+    /**
+     * Отвечает вместо сервера заданным кодом, при необходимости после паузы
+     */
+    private static final class FakeServer implements Interceptor {
+        volatile int code = 503;
+        volatile int succeedOnAttempt = Integer.MAX_VALUE;
+        volatile long latencyMillis;
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            int attempt = calls.incrementAndGet();
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(attempt >= succeedOnAttempt ? 200 : code)
+                    .message("")
+                    .body(ResponseBody.create("", null))
+                    .build();
+        }
+    }
+
+    private RetryInterceptor retry;
+    private FakeServer server;
+
+    @Before
+    public void setUp() {
+        retry = new RetryInterceptor();
+        server = new FakeServer();
+    }
+
+    @Test
+    public void transientFailure_isRetried() throws IOException {
+        server.succeedOnAttempt = 2;
+        assertEquals(200, execute(client(0), get()));
+        assertEquals(2, server.calls.get());
+        assertEquals(1, retry.getRetryCount());
+    }
+
+    @Test
+    public void attempts_areLimited() throws IOException {
+        assertEquals(503, execute(client(0), get()));
+        assertEquals(3, server.calls.get());
+    }
+
+    @Test
+    public void clientErrors_andPostsAreNotRetried() throws IOException {
+        server.code = 404;
+        assertEquals(404, execute(client(0), get()));
+        assertEquals(1, server.calls.get());
+
+        server.code = 503;
+        Request post = new Request.Builder()
+                .url("http://weather.test/log")
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build();
+        assertEquals(503, execute(client(0), post));
+        assertEquals(2, server.calls.get());
+        assertEquals(0, retry.getRetryCount());
+    }
+
+    @Test
+    public void noRetry_pastCallTimeout() throws IOException {
+        // Ответ приходит почти в конце срока: на паузу и попытку времени уже нет
+        server.latencyMillis = 180;
+        assertEquals(503, execute(client(200), get()));
+        assertEquals(1, server.calls.get());
+        assertEquals(0, retry.getRetryCount());
+    }
+
+    @Test
+    public void noRetry_pastExplicitDeadline() throws IOException {
+        server.latencyMillis = 180;
+        Call call = client(0).newCall(get());
+        call.timeout().deadline(200, TimeUnit.MILLISECONDS);
+        try (Response response = call.execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.calls.get());
+        // Жетон на невозможный повтор не потрачен
+        assertEquals(0, retry.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void retries_stopWhenBudgetIsExhausted() throws IOException {
+        OkHttpClient client = client(0);
+        // Запас 3 жетона + 0.1 на запрос: два повтора в первом вызове, один во втором
+        execute(client, get());
+        execute(client, get());
+        assertEquals(3, retry.getRetryCount());
+        assertEquals(1, retry.getBudgetExhaustedCount());
+        assertEquals(5, server.calls.get());
+    }
+
+    private OkHttpClient client(long callTimeoutMillis) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(retry)
+                .addInterceptor(server)
+                .callTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static Request get() {
+        return new Request.Builder().url("http://weather.test/weather/current").build();
+    }
+
+    private static int execute(OkHttpClient client, Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.weatherforecast.data.network;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenBudgetTest {
+    @Test
+    public void initialTokens_allowWithdrawals() {
+        TokenBudget budget = new TokenBudget(0.1, 10, 2);
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void deposits_addRatioPerRequest() {
+        TokenBudget budget = new TokenBudget(0.1, 10, 0);
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void extraRequests_stayWithinRatioOfTraffic() {
+        TokenBudget budget = new TokenBudget(0.1, 10, 0);
+        int extra = 0;
+        for (int i = 0; i < 1_000; i++) {
+            budget.deposit();
+            // Каждый запрос неудачен и пытается повториться
+            if (budget.tryWithdraw()) extra++;
+        }
+        assertTrue("extra requests: " + extra, extra <= 100);
+        assertTrue("extra requests: " + extra, extra >= 99);
+    }
+
+    @Test
+    public void tokens_areCappedAtMax() {
+        TokenBudget budget = new TokenBudget(1, 3, 100);
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.weatherforecast.data.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.weatherforecast.data.cache.NegativeCache;
+import com.example.weatherforecast.data.location.LocationIndex;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Путь позиции устройства в WeatherRepository до сети: привязка к каталогу и отказы.
+ * Каждый тик - новый GPS-фикс с дрожанием в десятки метров, как у неподвижного устройства
+ */
+public class LocationResolverTest {
+    private static final double SNAP_MAX_DISTANCE_KM = 50;
+    private static final int TICKS = 200;
+    // ~50 м
+    private static final double JITTER_DEGREES = 0.0005;
+
+    // Москва, Пермь, Сочи, Санкт-Петербург
+    private static final double[] LATS = {55.7558, 58.0105, 43.6028, 59.9343};
+    private static final double[] LONS = {37.6173, 56.2502, 39.7342, 30.3351};
+
+    private NegativeCache negativeCache;
+    private LocationResolver resolver;
+    private final Random random = new Random(42);
+
+    @Before
+    public void setUp() {
+        negativeCache = new NegativeCache(64, 60_000, true);
+        resolver = new LocationResolver(SNAP_MAX_DISTANCE_KM, negativeCache);
+    }
+
+    @Test
+    public void unsupportedLocation_withCatalog_isRejectedOnEveryJitteredFix() {
+        resolver.install(new LocationIndex(LATS, LONS));
+
+        // Середина Атлантики: до ближайшей точки каталога тысячи километров
+        int requests = 0;
+        for (int i = 0; i < TICKS; i++) {
+            LocationResolver.Resolution point = resolver.resolve(jitter(30.0), jitter(-40.0));
+            if (point.rejectedCode == 0) {
+                requests++;
+            } else {
+                assertEquals(LocationResolver.OUT_OF_COVERAGE, point.rejectedCode);
+                assertTrue(point.outsideCatalog);
+            }
+        }
+        assertEquals(0, requests);
+        assertEquals(TICKS, resolver.getOutOfCatalogCount());
+    }
+
+    @Test
+    public void supportedLocation_jitteredFixesShareOnePoint() {
+        resolver.install(new LocationIndex(LATS, LONS));
+
+        for (int i = 0; i < TICKS; i++) {
+            LocationResolver.Resolution point = resolver.resolve(jitter(55.76), jitter(37.62));
+            assertEquals(0, point.rejectedCode);
+            assertEquals(LATS[0], point.lat, 0.0);
+            assertEquals(LONS[0], point.lon, 0.0);
+        }
+        assertEquals(0, resolver.getOutOfCatalogCount());
+    }
+
+    @Test
+    public void serverRejectionOfCatalogPoint_coversJitteredFixes() {
+        resolver.install(new LocationIndex(LATS, LONS));
+        // Точка каталога, которую сервер всё же отверг (например, данные для неё удалены)
+        LocationResolver.Resolution first = resolver.resolve(jitter(58.0), jitter(56.25));
+        negativeCache.put(first.lat, first.lon, 404);
+
+        int requests = 0;
+        for (int i = 0; i < TICKS; i++) {
+            LocationResolver.Resolution point = resolver.resolve(jitter(58.0), jitter(56.25));
+            if (point.rejectedCode == 0) requests++;
+            assertFalse(point.outsideCatalog);
+        }
+        assertEquals(0, requests);
+    }
+
+    @Test
+    public void withoutCatalog_fixesGoOutAsIs() {
+        double lat = jitter(30.0);
+        double lon = jitter(-40.0);
+        LocationResolver.Resolution point = resolver.resolve(lat, lon);
+        assertEquals(0, point.rejectedCode);
+        assertEquals(lat, point.lat, 0.0);
+        assertEquals(lon, point.lon, 0.0);
+
+        // Отказ сервера помнится только для этих координат
+        negativeCache.put(lat, lon, 404);
+        assertEquals(404, resolver.resolve(lat, lon).rejectedCode);
+        assertFalse(resolver.resolve(lat, lon).outsideCatalog);
+    }
+
+    @Test
+    public void install_clearsServerRejections() {
+        negativeCache.put(30.0, -40.0, 404);
+        resolver.install(new LocationIndex(LATS, LONS));
+
+        assertEquals(0, negativeCache.get(30.0, -40.0));
+        assertEquals(LATS.length, resolver.getCatalogSize());
+    }
+
+    private double jitter(double value) {
+        return value + (random.nextDouble() * 2 - 1) * JITTER_DEGREES;
+    }
+}
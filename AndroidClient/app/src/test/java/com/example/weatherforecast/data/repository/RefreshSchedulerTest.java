@@ -0,0 +1,60 @@
+package com.example.weatherforecast.data.repository;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Разброс обновлений RefreshScheduler на тысяче устройств, проснувшихся одновременно
+ */
+public class RefreshSchedulerTest {
+    private static final int DEVICES = 1_000;
+    private static final long PERIOD_MILLIS = 60_000;
+    private static final long WAKE_UP_SPREAD_MILLIS = 30_000;
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void wakeUps_areSpreadEvenlyOverWindow() {
+        int[] perSecond = new int[(int) (WAKE_UP_SPREAD_MILLIS / 1_000) + 1];
+        for (int i = 0; i < DEVICES; i++) {
+            long delay = RefreshScheduler.wakeUpDelay(random);
+            assertTrue("delay " + delay, delay >= 0 && delay <= WAKE_UP_SPREAD_MILLIS);
+            perSecond[(int) (delay / 1_000)]++;
+        }
+        // Без разброса все 1000 запросов пришли бы в одну секунду; равномерно - ~33 в секунду
+        int peak = 0;
+        for (int count : perSecond) {
+            peak = Math.max(peak, count);
+        }
+        assertTrue("peak " + peak, peak < 70);
+    }
+
+    @Test
+    public void periods_stayWithinJitterAndDesynchronise() {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        long[] nextRefresh = new long[DEVICES];
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < DEVICES; i++) {
+                long period = RefreshScheduler.jitteredPeriod(PERIOD_MILLIS, random);
+                min = Math.min(min, period);
+                max = Math.max(max, period);
+                nextRefresh[i] += period;
+            }
+        }
+        assertTrue("min " + min, min >= PERIOD_MILLIS * 0.8);
+        assertTrue("max " + max, max <= PERIOD_MILLIS * 1.2);
+        assertTrue(min < PERIOD_MILLIS * 0.85 && max > PERIOD_MILLIS * 1.15);
+
+        // Устройства, запущенные вместе, через 10 периодов расходятся на десятки секунд
+        int sameSecond = 0;
+        long first = nextRefresh[0] / 1_000;
+        for (long at : nextRefresh) {
+            if (at / 1_000 == first) sameSecond++;
+        }
+        assertTrue("same second: " + sameSecond, sameSecond < DEVICES / 10);
+    }
+}
@@ -1,12 +1,27 @@
-from flask import Flask, jsonify, request
+from flask import Flask, Response, jsonify, request, stream_with_context
 from weather_provider import (
     get_city_by_coords,
     get_current_weather,
-    get_forecast_weather
+    get_forecast_weather,
+    get_forecast_delta,
+    get_data_last_modified,
+    get_supported_locations,
+    get_locations_last_modified
 )
 from datetime import datetime
+import hashlib
+import json
 import time
 from log_manager import log_manager
+from live_updates import live_updates
+
+# MessagePack необязателен: без библиотеки сервер всегда отвечает JSON
+try:
+    import msgpack
+except ImportError:
+    msgpack = None
+
+MSGPACK_MIMETYPE = "application/x-msgpack"
 
 app = Flask(__name__)
 
@@ -48,15 +63,50 @@ def validate_coordinates(lat, lon):
         )
         return False
 
+# Клиент запросил MessagePack и предпочитает его JSON
+def wants_msgpack():
+    if msgpack is None or not request:
+        return False
+    accept = request.accept_mimetypes
+    return accept[MSGPACK_MIMETYPE] > accept["application/json"]
+
 # Добавлена фабрика стандартизированных ответов API
 def create_response(data=None, status="success", message="",http_status=200):
-
-    return jsonify({
+    envelope = {
         "data": data,
         "status": status,
         "timestamp": datetime.utcnow().isoformat(),
         "message": message
-    }), http_status
+    }
+
+    if wants_msgpack():
+        response = Response(msgpack.packb(envelope, use_bin_type=True), mimetype=MSGPACK_MIMETYPE)
+    else:
+        response = jsonify(envelope)
+    # Формат зависит от Accept, кэши должны хранить варианты раздельно
+    response.vary.add("Accept")
+    return response, http_status
+
+# Ответ с валидаторами ETag/Last-Modified: при совпадении клиент получает 304 без тела.
+# ETag считается только по данным, так как timestamp конверта меняется на каждый запрос
+def create_conditional_response(data, message, last_modified=None):
+    response, http_status = create_response(data=data, message=message)
+    etag = hashlib.sha1(json.dumps(data, sort_keys=True).encode("utf-8")).hexdigest()
+    # У разных представлений одних данных должны быть разные ETag
+    response.set_etag(etag + ("-mp" if response.mimetype == MSGPACK_MIMETYPE else ""))
+    if last_modified:
+        response.last_modified = last_modified
+    # Клиент может хранить ответ, но обязан перепроверять его перед использованием
+    response.headers["Cache-Control"] = "no-cache"
+    return response.make_conditional(request)
+
+# Проекция полей: fields=temperature,condition оставляет в data только эти ключи.
+# Неизвестные имена игнорируются, без параметра данные отдаются целиком
+def project_fields(data, fields):
+    if not fields or not isinstance(data, dict):
+        return data
+    wanted = {name.strip() for name in fields.split(",") if name.strip()}
+    return {key: value for key, value in data.items() if key in wanted}
 
 @app.route('/status', methods=['GET'])
 def status():
@@ -69,6 +119,33 @@ def status():
         message="Server is operational"
     )
 
+@app.route("/locations")
+def locations():
+    """
+    Каталог поддерживаемых точек. Данные отдаются только для этих координат:
+    клиент привязывает к ближайшей из них свою позицию
+    """
+    try:
+        return create_conditional_response(
+            data={"locations": get_supported_locations()},
+            message="Supported locations retrieved successfully",
+            last_modified=get_locations_last_modified()
+        )
+    except Exception as e:
+        import traceback
+        log_manager.log_error(
+            error_type="ServerError",
+            message=f"Error in locations: {str(e)}",
+            traceback=traceback.format_exc(),
+            endpoint="/locations",
+            client_ip=request.remote_addr
+        )
+        return create_response(
+            status="error",
+            message=f"Server error: {str(e)}",
+            http_status=500
+        )
+
 @app.route("/weather/current")
 def weather_current():
     try:
@@ -100,10 +177,11 @@ def weather_current():
             )
 
         # Получение данных о погоде
-        weather_data = get_current_weather(city)
-        return create_response(
+        weather_data = project_fields(get_current_weather(city), request.args.get("fields"))
+        return create_conditional_response(
             data=weather_data,
-            message="Current weather retrieved successfully"
+            message="Current weather retrieved successfully",
+            last_modified=get_data_last_modified(city, "current")
         )
 
     except Exception as e:
@@ -157,9 +235,10 @@ def weather_forecast():
 
         # Получение прогноза
         forecast_data = get_forecast_weather(city)
-        return create_response(
+        return create_conditional_response(
             data=forecast_data,
-            message="5-day forecast retrieved successfully"
+            message="5-day forecast retrieved successfully",
+            last_modified=get_data_last_modified(city, "forecast")
         )
 
     except Exception as e:
@@ -180,6 +259,185 @@ def weather_forecast():
         )
 
 
+@app.route("/weather/forecast/delta")
+def weather_forecast_delta():
+    """
+    Изменения прогноза относительно версии, которая уже есть у клиента
+
+    Параметры: lat, lon, since=<version из прошлого ответа /weather/forecast>
+    В ответе только добавленные или изменённые дни (changed) и даты удалённых (removed).
+    Если версия неизвестна, full=true и changed содержит весь прогноз
+    """
+    try:
+        lat = request.args.get("lat")
+        lon = request.args.get("lon")
+        since = request.args.get("since")
+
+        # Валидация параметров
+        if not lat or not lon or not since:
+            return create_response(
+                status="error",
+                message="Missing lat, lon or since parameters",
+                http_status=400
+            )
+
+        if not validate_coordinates(lat, lon):
+            return create_response(
+                status="error",
+                message="Invalid coordinates range. Use: -90≤lat≤90, -180≤lon≤180",
+                http_status=400
+            )
+
+        # Поиск города по координатам
+        city = get_city_by_coords(lat, lon)
+        if not city:
+            return create_response(
+                status="error",
+                message="Weather data not available for these coordinates",
+                http_status=404
+            )
+
+        delta = get_forecast_delta(city, since)
+        return create_response(
+            data=delta,
+            message=f"Forecast delta: {len(delta['changed'])} changed, {len(delta['removed'])} removed"
+        )
+
+    except Exception as e:
+        # Логируем внутреннюю ошибку сервера
+        import traceback
+        log_manager.log_error(
+            error_type="ServerError",
+            message=f"Error in weather_forecast_delta: {str(e)}",
+            traceback=traceback.format_exc(),
+            endpoint="/weather/forecast/delta",
+            client_ip=request.remote_addr
+        )
+
+        return create_response(
+            status="error",
+            message=f"Server error: {str(e)}",
+            http_status=500
+        )
+
+
+# Ограничение на количество точек в одном пакетном запросе
+MAX_BATCH_LOCATIONS = 50
+
+
+@app.route("/weather/batch")
+def weather_batch():
+    """
+    Погода сразу для нескольких точек
+
+    Параметры: loc=lat,lon (повторяется), include=current,forecast
+    Для каждой точки возвращается собственный статус, чтобы одна
+    неизвестная точка не ломала весь ответ
+    """
+    try:
+        locations = request.args.getlist("loc")
+        include = request.args.get("include", default="current,forecast").split(",")
+
+        if not locations:
+            return create_response(
+                status="error",
+                message="Missing loc parameters",
+                http_status=400
+            )
+
+        if len(locations) > MAX_BATCH_LOCATIONS:
+            return create_response(
+                status="error",
+                message=f"Too many locations (max {MAX_BATCH_LOCATIONS})",
+                http_status=400
+            )
+
+        results = []
+        for loc in locations:
+            lat, _, lon = loc.partition(",")
+
+            if not validate_coordinates(lat, lon):
+                results.append({"lat": None, "lon": None, "status": "error",
+                                "message": f"Invalid coordinates: {loc}"})
+                continue
+
+            item = {"lat": float(lat), "lon": float(lon)}
+
+            city = get_city_by_coords(lat, lon)
+            if not city:
+                item.update(status="error", message="Weather data not available for these coordinates")
+                results.append(item)
+                continue
+
+            if "current" in include:
+                item["current"] = get_current_weather(city)
+            if "forecast" in include:
+                item["forecast"] = get_forecast_weather(city)
+            item.update(status="success", message="")
+            results.append(item)
+
+        return create_response(
+            data={"results": results},
+            message=f"Weather for {len(results)} locations retrieved successfully"
+        )
+
+    except Exception as e:
+        # Логируем внутреннюю ошибку сервера
+        import traceback
+        log_manager.log_error(
+            error_type="ServerError",
+            message=f"Error in weather_batch: {str(e)}",
+            traceback=traceback.format_exc(),
+            endpoint="/weather/batch",
+            client_ip=request.remote_addr
+        )
+
+        return create_response(
+            status="error",
+            message=f"Server error: {str(e)}",
+            http_status=500
+        )
+
+
+@app.route("/weather/stream")
+def weather_stream():
+    """
+    Живые обновления текущей погоды (Server-Sent Events)
+
+    Параметры: loc=lat,lon (повторяется). Заголовок Last-Event-ID (или параметр
+    last_event_id) продолжает поток после этого события
+    """
+    locations = request.args.getlist("loc")
+    if not locations or len(locations) > MAX_BATCH_LOCATIONS:
+        return create_response(
+            status="error",
+            message=f"Expected 1..{MAX_BATCH_LOCATIONS} loc parameters",
+            http_status=400
+        )
+
+    subscriptions = {}
+    for loc in locations:
+        lat, _, lon = loc.partition(",")
+        if not validate_coordinates(lat, lon):
+            return create_response(
+                status="error",
+                message=f"Invalid coordinates: {loc}",
+                http_status=400
+            )
+        city = get_city_by_coords(lat, lon)
+        if city:
+            subscriptions.setdefault(city, []).append((lat, lon))
+
+    last_event_id = request.headers.get("Last-Event-ID") or request.args.get("last_event_id")
+
+    live_updates.start()
+    return Response(
+        stream_with_context(live_updates.stream(subscriptions, last_event_id)),
+        mimetype="text/event-stream",
+        headers={"Cache-Control": "no-cache", "X-Accel-Buffering": "no"}
+    )
+
+
 @app.route("/api/logs", methods=['POST'])
 def receive_client_logs():
     """
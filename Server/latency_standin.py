@@ -0,0 +1,75 @@
+"""Прокси перед сервером погоды, который добавляет задержки, как нестабильная мобильная сеть.
+
+Небольшая доля запросов "зависает" на STALL_SECONDS, остальные получают небольшую задержку.
+Клиент направляется сюда вместо порта 5000 (например, BASE_URL = "http://10.0.2.2:5001/").
+
+    python latency_standin.py [порт] [адрес сервера] [задержка, мс]
+
+Несколько прокси с разной задержкой изображают реплики сервера для EndpointPool клиента:
+
+    python latency_standin.py 5001 http://localhost:5000 20
+    python latency_standin.py 5002 http://localhost:5000 80
+    python latency_standin.py 5003 http://localhost:5000 300
+"""
+import random
+import sys
+import time
+import urllib.error
+import urllib.request
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+STALL_PROBABILITY = 0.05
+STALL_SECONDS = 2.0
+BASE_DELAY_SECONDS = (0.02, 0.06)
+
+
+class LatencyHandler(BaseHTTPRequestHandler):
+    upstream = "http://localhost:5000"
+
+    def do_GET(self):
+        if random.random() < STALL_PROBABILITY:
+            time.sleep(STALL_SECONDS)
+        else:
+            time.sleep(random.uniform(*BASE_DELAY_SECONDS))
+
+        request = urllib.request.Request(self.upstream + self.path,
+                                         headers={k: v for k, v in self.headers.items()
+                                                  if k.lower() not in ("host", "connection")})
+        try:
+            with urllib.request.urlopen(request, timeout=30) as response:
+                status, headers, body = response.status, response.getheaders(), response.read()
+        except urllib.error.HTTPError as e:
+            status, headers, body = e.code, e.headers.items(), e.read()
+        except OSError:
+            self.send_error(502, "Upstream unavailable")
+            return
+
+        self.send_response(status)
+        for name, value in headers:
+            if name.lower() not in ("transfer-encoding", "connection", "content-length"):
+                self.send_header(name, value)
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, format, *args):
+        pass
+
+
+def run(port=5001, upstream="http://localhost:5000", delay_ms=None):
+    global BASE_DELAY_SECONDS
+    LatencyHandler.upstream = upstream.rstrip("/")
+    if delay_ms is not None:
+        # Разброс +-50% вокруг заданной задержки
+        BASE_DELAY_SECONDS = (delay_ms / 2000, delay_ms * 1.5 / 1000)
+    server = ThreadingHTTPServer(("0.0.0.0", port), LatencyHandler)
+    print(f"🐢 Прокси с задержками на порту {port} -> {upstream} "
+          f"({BASE_DELAY_SECONDS[0] * 1000:.0f}-{BASE_DELAY_SECONDS[1] * 1000:.0f} мс, "
+          f"{STALL_PROBABILITY:.0%} запросов ждут {STALL_SECONDS} с)")
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    run(int(sys.argv[1]) if len(sys.argv) > 1 else 5001,
+        sys.argv[2] if len(sys.argv) > 2 else "http://localhost:5000",
+        float(sys.argv[3]) if len(sys.argv) > 3 else None)
@@ -0,0 +1,165 @@
+"""Живые обновления текущей погоды (Server-Sent Events).
+
+Фоновый поток следит за файлами data/weather/current и складывает изменения в журнал
+событий с возрастающими номерами. Клиент держит одно соединение /weather/stream и получает
+события "current" (новые данные) и "invalidate" (данных больше нет или клиент пропустил
+слишком много событий - кэш нужно сбросить). При переподключении клиент присылает
+Last-Event-ID и получает пропущенные события из журнала.
+
+id события - "<эпоха>-<номер>". Эпоха случайна для каждого запуска процесса: после
+перезапуска журнал начинается заново, и номер из прошлого запуска нельзя сравнивать
+с новыми, даже если он меньше последнего.
+"""
+import json
+import logging
+import threading
+import time
+import uuid
+from collections import deque
+
+import weather_provider
+
+logger = logging.getLogger(__name__)
+
+# Сколько последних событий хранится для переподключений
+EVENT_LOG_SIZE = 256
+POLL_INTERVAL = 1.0
+# Комментарий в поток, чтобы прокси и клиент не считали соединение мёртвым
+HEARTBEAT_INTERVAL = 15.0
+# Рекомендуемая клиенту пауза перед переподключением, мс
+RETRY_MILLIS = 3000
+
+
+class LiveUpdates:
+    def __init__(self):
+        self._events = deque(maxlen=EVENT_LOG_SIZE)
+        self._next_id = 1
+        self._epoch = uuid.uuid4().hex[:8]
+        self._condition = threading.Condition()
+        self._mtimes = {}
+        self._watcher = None
+
+    def start(self):
+        """Запускает наблюдение за файлами (один раз)"""
+        with self._condition:
+            if self._watcher is not None:
+                return
+            self._mtimes = self._scan()
+            self._watcher = threading.Thread(target=self._watch, name="live-updates", daemon=True)
+            self._watcher.start()
+
+    def _scan(self):
+        directory = weather_provider.DATA_DIR / "current"
+        return {path.stem: path.stat().st_mtime_ns for path in directory.glob("*.json")}
+
+    def _watch(self):
+        while True:
+            time.sleep(POLL_INTERVAL)
+            try:
+                self.check_changes()
+            except Exception as e:
+                logger.error(f"Live updates watcher error: {e}")
+
+    def check_changes(self):
+        """Сравнивает файлы с прошлым состоянием и публикует изменения"""
+        current = self._scan()
+        for city, mtime in current.items():
+            if self._mtimes.get(city) != mtime:
+                try:
+                    self.publish(city, "current", weather_provider.get_current_weather(city))
+                except (OSError, ValueError):
+                    # Файл переписывается прямо сейчас; доберём на следующем проходе
+                    continue
+            self._mtimes[city] = mtime
+        for city in list(self._mtimes):
+            if city not in current:
+                del self._mtimes[city]
+                self.publish(city, "invalidate", None)
+
+    def publish(self, city, event_type, data):
+        with self._condition:
+            event = {"id": self._next_id, "city": city, "type": event_type, "data": data}
+            self._next_id += 1
+            self._events.append(event)
+            self._condition.notify_all()
+        logger.info(f"Live update #{event['id']}: {event_type} {city}")
+
+    def events_after(self, last_id):
+        """
+        События после last_id. Второе значение - True, если часть событий
+        уже вытеснена из журнала и клиент мог их пропустить
+        """
+        with self._condition:
+            events = [e for e in self._events if e["id"] > last_id]
+            oldest = self._events[0]["id"] if self._events else self._next_id
+            return events, last_id + 1 < oldest
+
+    def last_id(self):
+        with self._condition:
+            return self._next_id - 1
+
+    def event_id(self, number):
+        """id события для поля id: и заголовка Last-Event-ID"""
+        return f"{self._epoch}-{number}"
+
+    def parse_event_id(self, event_id):
+        """Номер события из id этого запуска; None, если id выдан другим запуском или испорчен"""
+        epoch, _, number = (event_id or "").partition("-")
+        if epoch != self._epoch or not number.isdigit():
+            return None
+        return int(number)
+
+    def wait(self, last_id, timeout):
+        """Ждёт события новее last_id не дольше timeout секунд"""
+        with self._condition:
+            self._condition.wait_for(lambda: self._next_id - 1 > last_id, timeout)
+
+    def stream(self, subscriptions, last_event_id=None, max_events=None):
+        """
+        Генератор SSE. subscriptions - {город: [(lat, lon), ...]}.
+        last_event_id - строка из Last-Event-ID; без неё поток начинается с текущего
+        момента. max_events ограничивает число событий (для тестов)
+        """
+        yield f"retry: {RETRY_MILLIS}\n\n"
+
+        if not last_event_id:
+            last_id = self.last_id()
+        else:
+            last_id = self.parse_event_id(last_event_id)
+            # Другая эпоха - сервер перезапускался и журнал начат заново
+            gap = last_id is None or last_id > self.last_id()
+            if not gap:
+                _, gap = self.events_after(last_id)
+            if gap:
+                # Пропущенного уже не восстановить: клиент сбрасывает кэш этих точек
+                last_id = self.last_id()
+                for city, locations in subscriptions.items():
+                    yield from _format(self.event_id(last_id), city, "invalidate", None, locations)
+
+        sent = 0
+        while max_events is None or sent < max_events:
+            events, _ = self.events_after(last_id)
+            if not events:
+                self.wait(last_id, HEARTBEAT_INTERVAL)
+                events, _ = self.events_after(last_id)
+                if not events:
+                    yield ": keep-alive\n\n"
+                    continue
+            for event in events:
+                last_id = event["id"]
+                locations = subscriptions.get(event["city"])
+                if locations:
+                    yield from _format(self.event_id(event["id"]), event["city"], event["type"],
+                                       event["data"], locations)
+                    sent += 1
+
+
+def _format(event_id, city, event_type, data, locations):
+    for lat, lon in locations:
+        payload = {"lat": float(lat), "lon": float(lon), "city": city}
+        if data is not None:
+            payload["current"] = data
+        yield f"id: {event_id}\nevent: {event_type}\ndata: {json.dumps(payload, ensure_ascii=False)}\n\n"
+
+
+live_updates = LiveUpdates()
@@ -0,0 +1,44 @@
+"""Стенд для живых обновлений: по очереди меняет файлы data/weather/current.
+
+Каждые INTERVAL секунд у случайного города меняется температура и время наблюдения;
+/weather/stream рассылает это подписчикам. При выходе (Ctrl+C) исходные файлы возвращаются.
+
+    python replay_current.py [интервал, с]
+"""
+import json
+import random
+import sys
+import time
+from datetime import datetime
+
+import weather_provider
+
+INTERVAL = 5.0
+
+
+def replay(interval=INTERVAL):
+    directory = weather_provider.DATA_DIR / "current"
+    originals = {path: path.read_bytes() for path in directory.glob("*.json")}
+    print(f"🔁 Меняем {len(originals)} файлов текущей погоды каждые {interval} с (Ctrl+C - выход)")
+
+    try:
+        while True:
+            time.sleep(interval)
+            path = random.choice(list(originals))
+            with open(path, "r", encoding="utf-8") as f:
+                data = json.load(f)
+            data["temperature"] += random.choice((-1, 1))
+            data["timestamp"] = datetime.now().strftime("%Y-%m-%dT%H:%M:%S")
+            with open(path, "w", encoding="utf-8") as f:
+                json.dump(data, f, ensure_ascii=False, indent=2)
+            print(f"   {path.stem}: {data['temperature']}°")
+    except KeyboardInterrupt:
+        pass
+    finally:
+        for path, content in originals.items():
+            path.write_bytes(content)
+        print("✅ Исходные данные восстановлены")
+
+
+if __name__ == "__main__":
+    replay(float(sys.argv[1]) if len(sys.argv) > 1 else INTERVAL)
@@ -0,0 +1,23 @@
+"""
+Запуск сервера с поддержкой HTTP/2 без TLS (h2c prior knowledge).
+
+Встроенный сервер Flask понимает только HTTP/1.1. Hypercorn принимает и HTTP/1.1,
+и HTTP/2 с prior knowledge, поэтому клиент с setHttp2PriorKnowledge(true)
+отправляет текущую погоду и прогноз по одному соединению.
+
+Установка: pip install -r requirements.txt
+Проверка:  curl --http2-prior-knowledge -I http://localhost:5000/status
+"""
+import asyncio
+
+from hypercorn.asyncio import serve
+from hypercorn.config import Config
+
+from app import app
+
+
+if __name__ == "__main__":
+    config = Config()
+    config.bind = ["0.0.0.0:5000"]
+    print("Starting Flask app over HTTP/1.1 and h2c...")
+    asyncio.run(serve(app, config, mode="wsgi"))
@@ -0,0 +1,36 @@
+import requests
+
+BASE_URL = "http://localhost:5000"
+
+
+def test_conditional_requests():
+    print("🧪 Тестирование условных запросов (ETag/Last-Modified)")
+    print("=" * 50)
+
+    for endpoint in ("current", "forecast"):
+        url = f"{BASE_URL}/weather/{endpoint}?lat=55.7558&lon=37.6173"
+
+        # 1. Первый запрос возвращает полное тело и валидаторы
+        first = requests.get(url)
+        etag = first.headers.get("ETag")
+        last_modified = first.headers.get("Last-Modified")
+        print(f"\n{endpoint}: статус {first.status_code}, ETag={etag}, Last-Modified={last_modified}")
+        assert first.status_code == 200
+        assert etag, "ETag header is missing"
+
+        # 2. Повторный запрос с If-None-Match должен вернуть 304 без тела
+        second = requests.get(url, headers={"If-None-Match": etag})
+        print(f"{endpoint}: If-None-Match -> {second.status_code}, тело {len(second.content)} байт")
+        assert second.status_code == 304
+        assert not second.content
+
+        # 3. Устаревший ETag возвращает полный ответ
+        third = requests.get(url, headers={"If-None-Match": '"stale"'})
+        print(f"{endpoint}: чужой ETag -> {third.status_code}")
+        assert third.status_code == 200
+
+    print("\n✅ Тестирование завершено!")
+
+
+if __name__ == "__main__":
+    test_conditional_requests()
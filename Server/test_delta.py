@@ -0,0 +1,70 @@
+import json
+import shutil
+import tempfile
+from pathlib import Path
+
+import weather_provider
+
+
+def test_forecast_delta():
+    print("🧪 Тестирование дельта-синхронизации прогноза")
+    print("=" * 50)
+
+    # Работаем с копией данных, чтобы не трогать файлы сервера
+    original_dir = weather_provider.DATA_DIR
+    temp_dir = Path(tempfile.mkdtemp())
+    shutil.copytree(original_dir, temp_dir / "weather")
+    weather_provider.DATA_DIR = temp_dir / "weather"
+
+    try:
+        for path in sorted((weather_provider.DATA_DIR / "forecast").glob("*.json")):
+            city = path.stem
+
+            # 1. Клиент получил полный прогноз и запомнил версию
+            first = weather_provider.get_forecast_weather(city)
+            days = first["forecast"]
+            version = first["version"]
+
+            # 2. Без изменений дельта пустая
+            delta = weather_provider.get_forecast_delta(city, version)
+            assert not delta["full"] and not delta["changed"] and not delta["removed"]
+            assert delta["version"] == version
+
+            # 3. Сдвигаем прогноз на день и уточняем один день
+            with open(path, "r", encoding="utf-8") as f:
+                data = json.load(f)
+            removed_day = data["forecast"].pop(0)
+            data["forecast"][0]["temperature_max"] += 1
+            data["forecast"].append({
+                "datetime": "2099-01-01",
+                "temperature_min": -1,
+                "temperature_max": 1,
+                "condition": "Cloudy"
+            })
+            with open(path, "w", encoding="utf-8") as f:
+                json.dump(data, f, ensure_ascii=False, indent=2)
+
+            delta = weather_provider.get_forecast_delta(city, version)
+            changed_dates = [day["datetime"] for day in delta["changed"]]
+            print(f"\n{city}: {len(days)} дней, изменено {changed_dates}, удалено {delta['removed']}")
+            assert not delta["full"]
+            assert delta["base_version"] == version
+            assert delta["removed"] == [removed_day["datetime"]]
+            assert changed_dates == [data["forecast"][0]["datetime"], "2099-01-01"]
+
+            full_size = len(json.dumps(data["forecast"]))
+            delta_size = len(json.dumps({k: delta[k] for k in ("changed", "removed")}))
+            print(f"{city}: полный прогноз {full_size} байт, дельта {delta_size} байт")
+
+            # 4. Неизвестная версия возвращает весь прогноз
+            delta = weather_provider.get_forecast_delta(city, "unknown")
+            assert delta["full"] and len(delta["changed"]) == len(data["forecast"])
+
+        print("\n✅ Тестирование завершено!")
+    finally:
+        weather_provider.DATA_DIR = original_dir
+        shutil.rmtree(temp_dir)
+
+
+if __name__ == "__main__":
+    test_forecast_delta()
@@ -0,0 +1,115 @@
+import json
+import shutil
+import tempfile
+from pathlib import Path
+
+import live_updates
+import weather_provider
+
+
+def read_events(stream, count):
+    """Разбирает count событий из SSE-генератора (комментарии и retry пропускаются)"""
+    events = []
+    for chunk in stream:
+        fields = {}
+        for line in chunk.strip().splitlines():
+            name, _, value = line.partition(": ")
+            if name in ("id", "event", "data"):
+                fields[name] = value
+        if "event" in fields:
+            events.append((fields["id"], fields["event"], json.loads(fields["data"])))
+            if len(events) == count:
+                break
+    return events
+
+
+def update_temperature(path, delta):
+    with open(path, "r", encoding="utf-8") as f:
+        data = json.load(f)
+    data["temperature"] += delta
+    with open(path, "w", encoding="utf-8") as f:
+        json.dump(data, f, ensure_ascii=False, indent=2)
+    return data["temperature"]
+
+
+def test_live_updates():
+    print("🧪 Тестирование живых обновлений (SSE)")
+    print("=" * 50)
+
+    original_dir = weather_provider.DATA_DIR
+    temp_dir = Path(tempfile.mkdtemp())
+    shutil.copytree(original_dir, temp_dir / "weather")
+    weather_provider.DATA_DIR = temp_dir / "weather"
+
+    try:
+        updates = live_updates.LiveUpdates()
+        updates._mtimes = updates._scan()
+        moscow = weather_provider.DATA_DIR / "current" / "Moscow.json"
+        sochi = weather_provider.DATA_DIR / "current" / "Sochi.json"
+        subscription = {"Moscow": [("55.7558", "37.6173")]}
+
+        # 1. Изменение файла приходит подписчику, чужой город - нет
+        start_id = updates.event_id(updates.last_id())
+        update_temperature(sochi, 1)
+        temperature = update_temperature(moscow, 1)
+        updates.check_changes()
+        events = read_events(updates.stream(subscription, start_id), 1)
+        event_id, event_type, payload = events[0]
+        print(f"Событие #{event_id}: {event_type} {payload['city']} {payload['current']['temperature']}°")
+        assert event_type == "current" and payload["city"] == "Moscow"
+        assert payload["current"]["temperature"] == temperature
+        assert payload["lat"] == 55.7558
+
+        # 2. Переподключение с Last-Event-ID отдаёт только пропущенное
+        first = update_temperature(moscow, 1)
+        updates.check_changes()
+        second = update_temperature(moscow, 1)
+        updates.check_changes()
+        events = read_events(updates.stream(subscription, event_id), 2)
+        replayed = [e[2]["current"]["temperature"] for e in events]
+        print(f"После #{event_id} получено {len(events)} события: {replayed}")
+        assert replayed == [first, second]
+
+        # 3. Удалённый файл - сообщение об инвалидации
+        moscow.unlink()
+        updates.check_changes()
+        last_id = events[-1][0]
+        events = read_events(updates.stream(subscription, last_id), 1)
+        print(f"Файл удалён: {events[0][1]}")
+        assert events[0][1] == "invalidate" and "current" not in events[0][2]
+
+        # 4. Слишком старый Last-Event-ID: журнал уже вытеснен, клиент сбрасывает кэш
+        small = live_updates.LiveUpdates()
+        small._events = live_updates.deque(maxlen=2)
+        for i in range(5):
+            small.publish("Moscow", "current", {"temperature": i})
+        events = read_events(small.stream(subscription, small.event_id(1)), 1)
+        print(f"Пропуск событий: {events[0][1]}")
+        assert events[0][1] == "invalidate"
+
+        # 5. Сервер перезапущен - тоже инвалидация, даже если номер у клиента меньше
+        # последнего номера нового запуска: эпоха в id другая
+        restarted = live_updates.LiveUpdates()
+        for i in range(5):
+            restarted.publish("Moscow", "current", {"temperature": i})
+        events = read_events(restarted.stream(subscription, small.event_id(2)), 1)
+        print(f"Id прошлого запуска: {events[0][1]}")
+        assert events[0][1] == "invalidate"
+        assert restarted.parse_event_id(events[0][0]) == restarted.last_id()
+        events = read_events(restarted.stream(subscription, restarted.event_id(1000)), 1)
+        assert events[0][1] == "invalidate"
+        events = read_events(restarted.stream(subscription, "garbage"), 1)
+        assert events[0][1] == "invalidate"
+
+        # 6. Id своего запуска без пропуска - только новые события
+        events = read_events(restarted.stream(subscription, restarted.event_id(4)), 1)
+        assert events[0][1] == "current" and events[0][2]["current"]["temperature"] == 4
+
+        print("\n✅ Тестирование завершено!")
+    finally:
+        weather_provider.DATA_DIR = original_dir
+        shutil.rmtree(temp_dir)
+
+
+if __name__ == "__main__":
+    test_live_updates()
@@ -0,0 +1,31 @@
+import requests
+
+BASE_URL = "http://localhost:5000"
+
+
+def test_field_projection():
+    print("🧪 Тестирование проекции полей (fields=)")
+    print("=" * 50)
+
+    url = f"{BASE_URL}/weather/current?lat=55.7558&lon=37.6173"
+
+    full = requests.get(url)
+    projected = requests.get(url + "&fields=temperature,condition")
+    print(f"\nПолный ответ: {len(full.content)} байт, ключи {sorted(full.json()['data'])}")
+    print(f"Проекция: {len(projected.content)} байт, ключи {sorted(projected.json()['data'])}")
+    assert projected.status_code == 200
+    assert sorted(projected.json()["data"]) == ["condition", "temperature"]
+    assert projected.json()["data"]["temperature"] == full.json()["data"]["temperature"]
+
+    # У проекции собственный ETag, условный запрос работает и для неё
+    etag = projected.headers.get("ETag")
+    assert etag and etag != full.headers.get("ETag")
+    again = requests.get(url + "&fields=temperature,condition", headers={"If-None-Match": etag})
+    print(f"Проекция с If-None-Match -> {again.status_code}")
+    assert again.status_code == 304
+
+    print("\n✅ Тестирование завершено!")
+
+
+if __name__ == "__main__":
+    test_field_projection()
@@ -1,4 +1,8 @@
+import hashlib
 import json
+import threading
+from collections import OrderedDict
+from datetime import datetime, timezone
 from pathlib import Path
 import logging
 
@@ -8,6 +12,13 @@ logger = logging.getLogger(__name__)
 BASE_DIR = Path(__file__).parent
 DATA_DIR = BASE_DIR / "data" / "weather"
 
+# Сколько последних версий прогноза по каждому городу помнить для дельт
+FORECAST_HISTORY_SIZE = 8
+
+# city -> OrderedDict(version -> список дней), от старых к новым
+_forecast_history = {}
+_forecast_history_lock = threading.Lock()
+
 
 def get_city_by_coords(lat, lon):
     """Получение города по координатам с логированием"""
@@ -16,6 +27,9 @@ def get_city_by_coords(lat, lon):
             mapping = json.load(f)
         key = f"{lat},{lon}"
         city = mapping.get(key)
+        if not city:
+            # Клиент мог записать те же координаты иначе ("55.75580", "55.7558")
+            city = _numeric_mapping(mapping).get((float(lat), float(lon)))
 
         if not city:
             logger.warning(f"No city found for coordinates: {lat}, {lon}")
@@ -33,6 +47,37 @@ def get_city_by_coords(lat, lon):
         return None
 
 
+def _numeric_mapping(mapping):
+    result = {}
+    for key, city in mapping.items():
+        lat, _, lon = key.partition(",")
+        try:
+            result[(float(lat), float(lon))] = city
+        except ValueError:
+            logger.warning(f"Bad mapping key: {key}")
+    return result
+
+
+def get_supported_locations():
+    """Каталог точек, для которых есть данные: [{"name", "lat", "lon"}, ...]"""
+    with open(BASE_DIR / "location_mapping.json", "r", encoding="utf-8") as f:
+        mapping = json.load(f)
+    return [
+        {"name": city, "lat": lat, "lon": lon}
+        for (lat, lon), city in _numeric_mapping(mapping).items()
+    ]
+
+
+def get_locations_last_modified():
+    """Время изменения каталога точек"""
+    try:
+        path = BASE_DIR / "location_mapping.json"
+        return datetime.fromtimestamp(path.stat().st_mtime, tz=timezone.utc)
+    except OSError as e:
+        logger.warning(f"Cannot stat location mapping: {e}")
+        return None
+
+
 def get_current_weather(city_file_name):
     """Получение текущей погоды с логированием"""
     try:
@@ -68,6 +113,10 @@ def get_forecast_weather(city_file_name):
         with open(path, "r", encoding="utf-8") as f:
             data = json.load(f)
 
+        # Версия позволяет клиенту потом запросить только изменения
+        data["version"] = forecast_version(data.get("forecast", []))
+        _remember_forecast(city_file_name, data["version"], data.get("forecast", []))
+
         logger.info(f"Forecast data loaded for {city_file_name}")
         return data
 
@@ -76,4 +125,74 @@ def get_forecast_weather(city_file_name):
         raise
     except Exception as e:
         logger.error(f"Unexpected error in get_forecast_weather: {e}")
-        raise
\ No newline at end of file
+        raise
+
+
+def get_data_last_modified(city_file_name, kind):
+    """Время последнего изменения файла с данными (kind: current или forecast)"""
+    path = DATA_DIR / kind / f"{city_file_name}.json"
+    try:
+        return datetime.fromtimestamp(path.stat().st_mtime, tz=timezone.utc)
+    except OSError as e:
+        logger.warning(f"Cannot stat {path}: {e}")
+        return None
+
+
+def forecast_version(days):
+    """Короткий хэш списка дней прогноза"""
+    canonical = json.dumps(days, sort_keys=True, ensure_ascii=False)
+    return hashlib.sha1(canonical.encode("utf-8")).hexdigest()[:16]
+
+
+def _remember_forecast(city_file_name, version, days):
+    with _forecast_history_lock:
+        history = _forecast_history.setdefault(city_file_name, OrderedDict())
+        history[version] = days
+        history.move_to_end(version)
+        while len(history) > FORECAST_HISTORY_SIZE:
+            history.popitem(last=False)
+
+
+def diff_forecast(old_days, new_days):
+    """
+    Разница двух прогнозов по дате: (добавленные или изменённые дни, даты удалённых дней)
+    """
+    old_by_date = {day.get("datetime"): day for day in old_days}
+    new_dates = {day.get("datetime") for day in new_days}
+
+    changed = [day for day in new_days if old_by_date.get(day.get("datetime")) != day]
+    removed = [date for date in old_by_date if date not in new_dates]
+    return changed, removed
+
+
+def get_forecast_delta(city_file_name, since_version):
+    """
+    Изменения прогноза относительно версии since_version, которая есть у клиента.
+    Если эта версия сервису неизвестна, возвращается полный прогноз с full=True
+    """
+    data = get_forecast_weather(city_file_name)
+    days = data.get("forecast", [])
+
+    with _forecast_history_lock:
+        base_days = _forecast_history.get(city_file_name, {}).get(since_version)
+
+    if base_days is None:
+        logger.info(f"Unknown forecast version {since_version} for {city_file_name}, sending full forecast")
+        return {
+            "city": data.get("city"),
+            "version": data["version"],
+            "base_version": None,
+            "full": True,
+            "changed": days,
+            "removed": []
+        }
+
+    changed, removed = diff_forecast(base_days, days)
+    return {
+        "city": data.get("city"),
+        "version": data["version"],
+        "base_version": since_version,
+        "full": False,
+        "changed": changed,
+        "removed": removed
+    }
\ No newline at end of file
@@ -0,0 +1,57 @@
+import json
+import time
+from pathlib import Path
+
+import msgpack
+
+DATA_DIR = Path(__file__).parent / "data" / "weather"
+ITERATIONS = 20000
+
+
+def envelope(data):
+    """Тот же конверт, что формирует create_response"""
+    return {
+        "data": data,
+        "status": "success",
+        "timestamp": "2025-11-29T14:00:00.000000",
+        "message": "Current weather retrieved successfully"
+    }
+
+
+def measure_decode(decode, payload):
+    start = time.perf_counter()
+    for _ in range(ITERATIONS):
+        decode(payload)
+    return (time.perf_counter() - start) / ITERATIONS * 1e6
+
+
+def wire_format_report():
+    print("📦 Сравнение JSON и MessagePack на данных городов")
+    print("=" * 60)
+    print(f"{'Файл':<24}{'JSON, б':>9}{'MP, б':>9}{'Экономия':>10}{'JSON, мкс':>11}{'MP, мкс':>9}")
+
+    total_json = total_msgpack = 0
+    for path in sorted(DATA_DIR.glob("*/*.json")):
+        with open(path, "r", encoding="utf-8") as f:
+            body = envelope(json.load(f))
+
+        # Так же компактно, как jsonify без debug
+        json_payload = json.dumps(body, separators=(",", ":")).encode("utf-8")
+        msgpack_payload = msgpack.packb(body, use_bin_type=True)
+        total_json += len(json_payload)
+        total_msgpack += len(msgpack_payload)
+
+        json_time = measure_decode(json.loads, json_payload)
+        msgpack_time = measure_decode(msgpack.unpackb, msgpack_payload)
+        saving = 100 * (1 - len(msgpack_payload) / len(json_payload))
+        name = f"{path.parent.name}/{path.name}"
+        print(f"{name:<24}{len(json_payload):>9}{len(msgpack_payload):>9}{saving:>9.0f}%"
+              f"{json_time:>11.2f}{msgpack_time:>9.2f}")
+
+    print("-" * 60)
+    print(f"Итого: JSON {total_json} б, MessagePack {total_msgpack} б, "
+          f"экономия {100 * (1 - total_msgpack / total_json):.0f}%")
+
+
+if __name__ == "__main__":
+    wire_format_report()